@@ -0,0 +1,58 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.AuditSummary;
+import com.hameed.hameedpm.service.impl.AuditService;
+import com.hameed.hameedpm.service.impl.VaultService;
+import com.hameed.hameedpm.util.PasswordStrength;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// A full audit of an unlocked vault: every record opened, scored and hashed on the fork/join pool,
+// then grouped and ranked. evaluate is the per-password scoring on its own.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AuditBenchmark {
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private VaultService vaultService;
+    private AuditService auditService;
+    private String[] passwords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vaultService = BenchmarkVaults.createVault("bench-audit-" + size, size);
+        auditService = new AuditService(vaultService);
+        passwords = new String[1024];
+        for (int i = 0; i < passwords.length; i++) {
+            passwords[i] = BenchmarkVaults.credential(i).getPassword();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vaultService.close();
+    }
+
+    @Benchmark
+    public AuditSummary audit() throws Exception {
+        AuditSummary summary = auditService.audit(20);
+        if (summary.credentials() != size) {
+            throw new IllegalStateException("Audited " + summary.credentials() + " of " + size + " credentials");
+        }
+        return summary;
+    }
+
+    @Benchmark
+    public PasswordStrength.Result evaluate() {
+        int i = next++ & (passwords.length - 1);
+        return PasswordStrength.evaluate(passwords[i], "service-" + i, "user" + i + "@example.com");
+    }
+}
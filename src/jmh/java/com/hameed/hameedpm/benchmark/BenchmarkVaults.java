@@ -0,0 +1,69 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.impl.VaultService;
+import org.springframework.shell.core.command.CommandContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Shared fixtures for the benchmarks. Vaults are written under a throwaway home directory:
+// VaultFileUtil resolves ~/.hameed-pm once, so user.home is redirected before it is first touched.
+final class BenchmarkVaults {
+
+    static final char[] PASSWORD = "Bench-Passw0rd!".toCharArray();
+
+    static {
+        try {
+            Path home = Files.createTempDirectory("hameed-pm-bench");
+            System.setProperty("user.home", home.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BenchmarkVaults() {}
+
+    static Credential credential(int i) {
+        Map<String, String> additionalInfo = new LinkedHashMap<>();
+        additionalInfo.put("url", "https://service-" + i + ".example.com");
+        additionalInfo.put("note", "benchmark credential " + i);
+        return new Credential("service-" + i, "user" + i + "@example.com", "Pa55word-" + i, additionalInfo);
+    }
+
+    // a vault holding `size` credentials, checkpointed so unlock reads segments without a journal to replay
+    static VaultService createVault(String vaultName, int size) throws Exception {
+        VaultService vaultService = new VaultService();
+        vaultService.createEncryptedVault(vaultName, PASSWORD.clone());
+        for (int i = 0; i < size; i++) {
+            vaultService.getCurrentVault().addCredential(credential(i));
+        }
+        vaultService.persistVault();
+        // re-keying an unlocked vault rewrites every segment and starts an empty journal
+        vaultService.createEncryptedVault(vaultName, PASSWORD.clone());
+        return vaultService;
+    }
+
+    // CSV in the import template layout: service_name,username,password,key1,value1,...
+    static Path writeCsv(int rows) throws IOException {
+        Path csv = Files.createTempFile(Path.of(System.getProperty("user.home")), "import-", ".csv");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv))) {
+            out.println("service_name,username,password,key1,value1,key2,value2");
+            for (int i = 0; i < rows; i++) {
+                out.println("service-" + i + ",user" + i + "@example.com,Pa55word-" + i
+                        + ",url,https://service-" + i + ".example.com,note,imported " + i);
+            }
+        }
+        return csv;
+    }
+
+    static CommandContext silentContext() {
+        return new CommandContext(null, null, new PrintWriter(Writer.nullWriter()), null);
+    }
+}
@@ -0,0 +1,86 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.util.BreachCorpus;
+import com.hameed.hameedpm.util.BreachFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Lookups in a memory-mapped breach corpus of random SHA-1 lines, for hashes that are in it and
+// hashes that are not, and the Bloom filter probe that answers most misses without the corpus.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BreachBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int lines;
+
+    private BreachCorpus corpus;
+    private BreachFilter filter;
+    private byte[][] present;
+    private byte[][] absent;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        byte[][] hashes = new byte[lines][BreachCorpus.HASH_LENGTH];
+        for (byte[] hash : hashes) random.nextBytes(hash);
+        Arrays.sort(hashes, Arrays::compareUnsigned);
+
+        Path file = Files.createTempFile(Path.of(System.getProperty("user.home")), "breach-", ".txt");
+        HexFormat hex = HexFormat.of().withUpperCase();
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (byte[] hash : hashes) {
+                out.write(hex.formatHex(hash));
+                out.write(":" + (1 + random.nextInt(10_000)) + "\r\n");
+            }
+        }
+        corpus = BreachCorpus.open(file);
+        BreachFilter.build(corpus, BreachFilter.sidecarOf(file), null);
+        filter = BreachFilter.open(BreachFilter.sidecarOf(file));
+
+        present = new byte[1024][];
+        absent = new byte[1024][];
+        for (int i = 0; i < present.length; i++) {
+            present[i] = hashes[random.nextInt(lines)];
+            absent[i] = new byte[BreachCorpus.HASH_LENGTH];
+            random.nextBytes(absent[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        filter.close();
+        corpus.close();
+    }
+
+    @Benchmark
+    public long lookupHit() {
+        long count = corpus.lookup(present[next++ & (present.length - 1)]);
+        if (count == 0) {
+            throw new IllegalStateException("Lookup missed a hash in the corpus");
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long lookupMiss() {
+        return corpus.lookup(absent[next++ & (absent.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean filterMiss() {
+        return filter.mightContain(absent[next++ & (absent.length - 1)]);
+    }
+}
@@ -0,0 +1,115 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.impl.CredentialService;
+import com.hameed.hameedpm.service.impl.VaultService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lookups, search and listing running while another thread keeps adding, updating and deleting
+// through the single writer, as the agent does with concurrent clients. Every read checks what it
+// saw, and tearDown checks the vault in memory and after a fresh unlock; VaultServiceConcurrencyTest
+// runs the same checks on every build.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private String vaultName;
+    private VaultService vaultService;
+    private CredentialService credentialService;
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vaultName         = "bench-concurrency-" + size;
+        vaultService      = BenchmarkVaults.createVault(vaultName, size);
+        credentialService = new CredentialService(vaultService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        List<Credential> credentials = credentialService.listCredentials();
+        for (Credential credential : credentials) {
+            if (credentialService.getCredentialByServiceName(credential.getServiceName()).isEmpty()) {
+                throw new IllegalStateException("Listed credential is missing from the index: " + credential.getServiceName());
+            }
+        }
+        vaultService.lockVault();
+        if (!vaultService.unlockVault(vaultName, BenchmarkVaults.PASSWORD.clone())) {
+            throw new IllegalStateException("Vault does not unlock after the run");
+        }
+        int reloaded = credentialService.listCredentials().size();
+        if (reloaded != credentials.size()) {
+            throw new IllegalStateException("Saved vault has " + reloaded + " credentials, memory had " + credentials.size());
+        }
+        vaultService.close();
+    }
+
+    // the original credentials are never deleted, so every lookup must hit and open cleanly
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Credential get(Cursor cursor) {
+        String serviceName = "service-" + (cursor.next++ % size);
+        Optional<Credential> credential = credentialService.getCredentialByServiceName(serviceName);
+        if (credential.isEmpty() || credential.get().getPassword() == null) {
+            throw new IllegalStateException("Lookup missed an existing credential: " + serviceName);
+        }
+        return credential.get();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<Credential> search(Cursor cursor) {
+        List<Credential> matches = credentialService.searchCredentials("service-" + (cursor.next++ % size));
+        if (matches.isEmpty()) {
+            throw new IllegalStateException("Search lost an existing credential");
+        }
+        return matches;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public int list() {
+        int count = credentialService.listCredentials().size();
+        if (count < size) {
+            throw new IllegalStateException("List returned " + count + " of at least " + size + " credentials");
+        }
+        return count;
+    }
+
+    // adds a churn credential, changes an original one, and deletes the churn credential again
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void write() throws Exception {
+        int n = writes.incrementAndGet();
+        String churn = "churn-" + n;
+        Credential added = BenchmarkVaults.credential(n);
+        added.setServiceName(churn);
+        credentialService.saveCredential(added);
+        String serviceName = "service-" + (n % size);
+        Credential changed = credentialService.getCredentialByServiceName(serviceName).orElseThrow();
+        changed.setPassword("Changed-" + n);
+        credentialService.updateCredential(serviceName, changed);
+        credentialService.deleteCredential(churn);
+    }
+}
@@ -0,0 +1,74 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.util.CryptoUtil;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+// Primitives behind unlock and save: key derivation, AES-GCM and the manifest HMAC.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class KeyState {
+        // iterations used for newly created vaults
+        @Param({"200000"})
+        int iterations;
+
+        byte[] salt;
+
+        @Setup
+        public void setup() {
+            salt = CryptoUtil.generateRandomBytes(16);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PayloadState {
+        // roughly one journal entry, one full segment, and a large legacy single-blob vault
+        @Param({"128", "65536", "1048576"})
+        int payloadSize;
+
+        byte[] iv;
+        byte[] signingKey;
+        SecretKey key;
+        byte[] plaintext;
+        byte[] ciphertext;
+
+        @Setup
+        public void setup() throws Exception {
+            iv         = CryptoUtil.generateRandomBytes(12);
+            signingKey = CryptoUtil.generateRandomBytes(32);
+            key        = CryptoUtil.keyFromBytes(CryptoUtil.generateRandomBytes(32));
+            plaintext  = CryptoUtil.generateRandomBytes(payloadSize);
+            ciphertext = CryptoUtil.encrypt(key, plaintext, iv);
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public byte[] deriveKey(KeyState state) throws Exception {
+        return CryptoUtil.deriveKey(BenchmarkVaults.PASSWORD, state.salt, state.iterations);
+    }
+
+    @Benchmark
+    public byte[] encrypt(PayloadState state) throws Exception {
+        return CryptoUtil.encrypt(state.key, state.plaintext, state.iv);
+    }
+
+    @Benchmark
+    public byte[] decrypt(PayloadState state) throws Exception {
+        return CryptoUtil.decrypt(state.key, state.ciphertext, state.iv);
+    }
+
+    @Benchmark
+    public byte[] computeHmac(PayloadState state) throws Exception {
+        return CryptoUtil.computeHmac(state.signingKey, state.ciphertext);
+    }
+}
@@ -0,0 +1,59 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.impl.CSVParserImpl;
+import com.hameed.hameedpm.service.impl.CredentialService;
+import com.hameed.hameedpm.service.impl.VaultService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// CSV import: parsing alone, and the full load into an empty vault including the final save.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private Path csv;
+    private final CSVParserImpl parser = new CSVParserImpl();
+    private VaultService vaultService;
+    private CredentialService credentialService;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        csv = BenchmarkVaults.writeCsv(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(csv);
+    }
+
+    // every load starts from a fresh, empty vault; creating it is not measured
+    @Setup(Level.Invocation)
+    public void emptyVault() throws Exception {
+        if (vaultService != null) vaultService.close();
+        vaultService = new VaultService();
+        vaultService.createEncryptedVault("bench-import", BenchmarkVaults.PASSWORD.clone());
+        credentialService = new CredentialService(vaultService);
+    }
+
+    @Benchmark
+    public List<Credential> parse() throws Exception {
+        return parser.parse(csv);
+    }
+
+    @Benchmark
+    public void parseAndAddAll() throws Exception {
+        credentialService.addAll(parser.parse(csv), BenchmarkVaults.silentContext());
+    }
+}
@@ -0,0 +1,70 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.impl.CredentialService;
+import com.hameed.hameedpm.service.impl.VaultService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Lookup by service name on an unlocked vault, for names that exist and names that do not,
+// and the prefix completion behind get/update/delete.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int size;
+
+    private VaultService vaultService;
+    private CredentialService credentialService;
+    private String[] names;
+    private String[] missingNames;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vaultService      = BenchmarkVaults.createVault("bench-lookup-" + size, size);
+        credentialService = new CredentialService(vaultService);
+        // mixed case, as typed at the prompt; lookups are case-insensitive
+        names        = new String[1024];
+        missingNames = new String[1024];
+        for (int i = 0; i < names.length; i++) {
+            names[i]        = (i % 2 == 0 ? "Service-" : "SERVICE-") + ((i * 7919) % size);
+            missingNames[i] = "missing-" + i;
+        }
+        // what is typed before pressing tab: a few characters into a name
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = names[i];
+            prefixes[i] = name.substring(0, Math.min(name.length(), 9 + (i % 3)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vaultService.close();
+    }
+
+    @Benchmark
+    public Optional<Credential> getCredentialHit() {
+        return credentialService.getCredentialByServiceName(names[next++ & (names.length - 1)]);
+    }
+
+    @Benchmark
+    public List<String> completeServiceName() {
+        return credentialService.completeServiceName(prefixes[next++ & (prefixes.length - 1)], 50);
+    }
+
+    @Benchmark
+    public Optional<Credential> getCredentialMiss() {
+        return credentialService.getCredentialByServiceName(missingNames[next++ & (missingNames.length - 1)]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.RotationOptions;
+import com.hameed.hameedpm.model.RotationSummary;
+import com.hameed.hameedpm.service.impl.CredentialService;
+import com.hameed.hameedpm.service.impl.RotationService;
+import com.hameed.hameedpm.service.impl.VaultService;
+import com.hameed.hameedpm.util.PasswordGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Changing the password of `rotated` credentials in a 10k vault: one rotate, saved once, against the
+// same changes made one update at a time, each saved on its own.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RotationBenchmark {
+
+    private static final int VAULT_SIZE = 10_000;
+
+    @Param({"100", "1000"})
+    private int rotated;
+
+    private VaultService vaultService;
+    private CredentialService credentialService;
+    private RotationService rotationService;
+    private PasswordGenerator generator;
+    private String pattern;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vaultService      = BenchmarkVaults.createVault("bench-rotation-" + rotated, VAULT_SIZE);
+        credentialService = new CredentialService(vaultService);
+        rotationService   = new RotationService(vaultService);
+        generator         = new PasswordGenerator(PasswordGenerator.DEFAULT_LENGTH);
+        // service-1?? selects service-100..199, service-1??? service-1000..1999: the names updateEach changes
+        pattern = "service-1" + "?".repeat(Integer.toString(rotated).length() - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vaultService.close();
+    }
+
+    @Benchmark
+    public RotationSummary rotate() throws Exception {
+        RotationSummary summary = rotationService.rotate(
+                new RotationOptions(pattern, null, PasswordGenerator.DEFAULT_LENGTH, false, null));
+        if (summary.rotations().size() != rotated) {
+            throw new IllegalStateException("Rotated " + summary.rotations().size() + " of " + rotated + " credentials");
+        }
+        return summary;
+    }
+
+    @Benchmark
+    public int updateEach() throws Exception {
+        for (int i = rotated; i < 2 * rotated; i++) {
+            String serviceName = "service-" + i;
+            Credential credential = credentialService.getCredentialByServiceName(serviceName).orElseThrow();
+            credential.setPassword(new String(generator.next()));
+            credentialService.updateCredential(serviceName, credential);
+        }
+        return rotated;
+    }
+}
@@ -0,0 +1,63 @@
+package com.hameed.hameedpm.benchmark;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.Vault;
+import com.hameed.hameedpm.service.impl.VaultService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Unlock and save of a whole vault. Unlock is dominated by key derivation on small vaults and by
+// segment decryption and decoding on large ones.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VaultBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int size;
+
+    private String vaultName;
+    private VaultService vaultService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vaultName    = "bench-" + size;
+        vaultService = BenchmarkVaults.createVault(vaultName, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vaultService.close();
+    }
+
+    @Benchmark
+    public boolean unlockVault() {
+        return vaultService.unlockVault(vaultName, BenchmarkVaults.PASSWORD.clone());
+    }
+
+    // the interactive path: one edited credential appended to the journal
+    @Benchmark
+    public void persistChange() throws Exception {
+        Vault vault = vaultService.getCurrentVault();
+        String serviceName = "service-" + (next++ % size);
+        Credential credential = vault.openCredential(serviceName).orElseThrow();
+        credential.setPassword("Changed-" + next);
+        vault.updateCredential(serviceName, credential);
+        vaultService.persistVault();
+    }
+
+    // every credential changed, e.g. after a bulk import or rotation
+    @Benchmark
+    public void persistAll() throws Exception {
+        Vault vault = vaultService.getCurrentVault();
+        for (Credential credential : vault.getCredentials()) {
+            vault.markDirty(credential.getServiceName());
+        }
+        vaultService.persistVault();
+    }
+}
@@ -1,6 +1,7 @@
 package com.hameed.hameedpm;
 
 import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.AgentClient;
 import org.jline.reader.UserInterruptException;
 import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStyle;
@@ -10,9 +11,22 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.shell.core.command.Command;
 import org.springframework.shell.jline.PromptProvider;
 
+import java.util.OptionalInt;
+
 @SpringBootApplication
 public class HameedPM {
     public static void main(String[] args) throws Exception {
+        // get/list/search/add are answered by a running unlock agent, without booting the shell
+        if (AgentClient.isForwardable(args)) {
+            OptionalInt status = AgentClient.forward(args);
+            if (status.isPresent()) {
+                System.exit(status.getAsInt());
+            }
+        }
+        // without an agent, read-only lookups unlock the vault directly instead of booting the shell
+        if (OneShotCli.handles(args)) {
+            System.exit(OneShotCli.run(args));
+        }
         SpringApplication.run(HameedPM.class, args);
     }
 
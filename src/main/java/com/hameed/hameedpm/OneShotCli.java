@@ -0,0 +1,232 @@
+package com.hameed.hameedpm;
+
+import com.hameed.hameedpm.exception.ResourceNotFoundException;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.ICredentialService;
+import com.hameed.hameedpm.service.impl.CredentialService;
+import com.hameed.hameedpm.service.impl.VaultService;
+import com.hameed.hameedpm.util.AgentProtocol;
+import com.hameed.hameedpm.util.PasswordUtil;
+import com.hameed.hameedpm.util.VaultFileUtil;
+
+import java.io.Console;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+// Answers `hameed-pm get|list|search ...` without booting Spring, Spring Shell or JLine: only the
+// vault and credential services are created, on first use. Nothing is written back, so a vault whose
+// KDF cost drifted is left for the next interactive unlock to re-wrap.
+// With --timings the startup phases are reported on stderr, keeping stdout clean for scripts.
+public class OneShotCli {
+
+    private static final Set<String> COMMANDS = Set.of("get", "list", "search");
+    private static final String PASSWORD_ENV = "HAMEED_PM_PASSWORD";
+
+    private final long mainStart = System.nanoTime();
+    private final List<String> phases = new ArrayList<>();
+    private long passwordNanos;
+
+    private VaultService vaultService;
+    private ICredentialService credentialService;
+
+    public static boolean handles(String[] args) {
+        return args.length > 0 && COMMANDS.contains(args[0]);
+    }
+
+    // exit status, following the shell's mapping: 1 invalid input, 2 not found, 99 anything else
+    public static int run(String[] args) {
+        return new OneShotCli().execute(args);
+    }
+
+    private int execute(String[] args) {
+        List<String> rest = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        boolean timings = rest.remove("--timings");
+        String fd;
+        String env;
+        try {
+            fd  = takeOption(rest, "--password-fd");
+            env = takeOption(rest, "--password-env");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return AgentProtocol.STATUS_INVALID;
+        }
+
+        try {
+            if (!VaultFileUtil.vaultFileExists(VaultFileUtil.DEFAULT_VAULT_NAME)) {
+                System.out.println("No vault found. Run hameed-pm interactively once to create it.");
+                return AgentProtocol.STATUS_INVALID;
+            }
+
+            VaultService vault = vaultService();
+
+            long start = System.nanoTime();
+            char[] password = readPassword(fd, env);
+            passwordNanos = System.nanoTime() - start;
+            phase("password", start);
+
+            start = System.nanoTime();
+            boolean unlocked = vault.unlockVault(VaultFileUtil.DEFAULT_VAULT_NAME, password);
+            Arrays.fill(password, '\0');
+            if (!unlocked) {
+                System.out.println("Wrong password.");
+                return AgentProtocol.STATUS_INVALID;
+            }
+            phase("unlock", start);
+            phases.add("derive " + vault.getLastDeriveTime().toMillis() + " ms");
+
+            start = System.nanoTime();
+            dispatch(args[0], rest);
+            System.out.flush();
+            phase(args[0], start);
+            return AgentProtocol.STATUS_OK;
+
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return AgentProtocol.STATUS_INVALID;
+        } catch (ResourceNotFoundException e) {
+            System.out.println(e.getMessage());
+            return AgentProtocol.STATUS_NOT_FOUND;
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+            return AgentProtocol.STATUS_ERROR;
+        } finally {
+            close();
+            if (timings) printTimings();
+        }
+    }
+
+    private void dispatch(String command, List<String> args) {
+        switch (command) {
+            case "get" -> {
+                String serviceName = requireArgument(args, "Service name is required. Usage: get <service-name>");
+                Credential cred = credentialService().getCredentialByServiceName(serviceName)
+                        .orElseThrow(() -> new ResourceNotFoundException(
+                                "Credential with this service name was not found: " + serviceName));
+                printCredential(cred);
+            }
+            case "list" -> {
+                boolean detailed = args.contains("-d") || args.contains("--detailed");
+                List<Credential> credentials = credentialService().listCredentials();
+                for (int i = 0; i < credentials.size(); i++) {
+                    if (detailed) {
+                        printCredential(credentialService().openCredential(credentials.get(i)));
+                    } else {
+                        System.out.println((i + 1) + ". " + credentials.get(i).getServiceName());
+                    }
+                }
+            }
+            case "search" -> {
+                String query = requireArgument(args, "Search text is required. Usage: search <text>");
+                List<Credential> matches = credentialService().searchCredentials(query);
+                if (matches.isEmpty()) {
+                    System.out.println("No credentials match '" + query + "'.");
+                }
+                for (int i = 0; i < matches.size(); i++) {
+                    System.out.println((i + 1) + ". " + matches.get(i).getServiceName());
+                }
+            }
+            default -> throw new IllegalArgumentException("Command not supported in one-shot mode: " + command);
+        }
+    }
+
+    // services are built on first use; a one-shot lookup opens the vault read-only, so it never
+    // rewrites the vault or repairs its journal
+    private VaultService vaultService() {
+        if (vaultService == null) {
+            long start = System.nanoTime();
+            vaultService = VaultService.readOnly();
+            phase("init", start);
+        }
+        return vaultService;
+    }
+
+    private ICredentialService credentialService() {
+        if (credentialService == null) {
+            credentialService = new CredentialService(vaultService());
+        }
+        return credentialService;
+    }
+
+    // --password-fd, then --password-env, then the console, then $HAMEED_PM_PASSWORD
+    private char[] readPassword(String fd, String env) throws Exception {
+        if (fd != null) {
+            try {
+                return PasswordUtil.readPasswordFromFd(Integer.parseInt(fd));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--password-fd expects a file descriptor number: " + fd);
+            }
+        }
+        if (env != null) {
+            return PasswordUtil.readPasswordFromEnv(env);
+        }
+        Console console = System.console();
+        if (console != null) {
+            char[] password = console.readPassword("Master password: ");
+            return password != null ? password : new char[0];
+        }
+        if (System.getenv(PASSWORD_ENV) != null) {
+            return PasswordUtil.readPasswordFromEnv(PASSWORD_ENV);
+        }
+        throw new IllegalArgumentException("No console to prompt for the master password; "
+                + "use --password-fd <n> or --password-env <name>.");
+    }
+
+    private void close() {
+        if (vaultService == null) return;
+        try {
+            vaultService.lockVault();
+            vaultService.close();
+        } catch (Exception e) {
+            // the process is exiting anyway
+        }
+    }
+
+    private void phase(String name, long startNanos) {
+        phases.add(name + " " + Duration.ofNanos(System.nanoTime() - startNanos).toMillis() + " ms");
+    }
+
+    // time to first result excludes the password prompt, which only measures the user
+    private void printTimings() {
+        long sinceMain = System.nanoTime() - mainStart;
+        List<String> report = new ArrayList<>();
+        ProcessHandle.current().info().startInstant().ifPresent(started -> {
+            long jvmStart = Duration.between(started, Instant.now()).toNanos() - sinceMain;
+            report.add("jvm-start " + Duration.ofNanos(Math.max(0, jvmStart)).toMillis() + " ms");
+        });
+        report.addAll(phases);
+        report.add("first-result " + Duration.ofNanos(sinceMain - passwordNanos).toMillis() + " ms after main");
+        System.err.println("timings: " + String.join(", ", report));
+    }
+
+    private static String requireArgument(List<String> args, String usage) {
+        if (args.isEmpty() || args.get(0).isBlank()) {
+            throw new IllegalArgumentException(usage);
+        }
+        return args.get(0);
+    }
+
+    private static String takeOption(List<String> args, String name) {
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i).equals(name)) {
+                if (i + 1 >= args.size()) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                args.remove(i);
+                return args.remove(i);
+            }
+            if (args.get(i).startsWith(name + "=")) {
+                return args.remove(i).substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static void printCredential(Credential cred) {
+        System.out.printf(" username: %s%n password: %s%n", cred.getUsername(), cred.getPassword());
+        cred.getAdditionalInfo().forEach((key, value) -> System.out.printf(" %s: %s%n", key, value));
+    }
+}
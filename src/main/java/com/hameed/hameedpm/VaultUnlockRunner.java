@@ -15,6 +15,8 @@ import java.util.Arrays;
 @Order(1) // Ensure this runs before any other ApplicationRunner
 public class VaultUnlockRunner implements CommandLineRunner {
 
+    private static final String BATCH_PASSWORD_ENV = "HAMEED_PM_PASSWORD";
+
     private final LineReader lineReader;  // inject Spring Shell's LineReader
     private final IVaultService vaultService;
 
@@ -26,6 +28,11 @@ public class VaultUnlockRunner implements CommandLineRunner {
     @Override
     public void run(String... args) throws Exception {
 
+        if (args.length > 0 && args[0].equals("batch")) {
+            unlockForBatch(args);
+            return;
+        }
+
         Terminal terminal = lineReader.getTerminal(); // get terminal from the LineReader
 
         if (!vaultService.vaultExists()) {
@@ -70,6 +77,7 @@ public class VaultUnlockRunner implements CommandLineRunner {
             if (vaultService.unlockVault(VaultFileUtil.DEFAULT_VAULT_NAME, password)) {
                 Arrays.fill(password, '\0');
                 terminal.writer().println("Vault unlocked. Welcome.");
+                vaultService.getLastRewrap().ifPresent(terminal.writer()::println);
                 terminal.writer().flush();
 
                 return;
@@ -88,6 +96,44 @@ public class VaultUnlockRunner implements CommandLineRunner {
         System.exit(1);
     }
 
+    // batch runs are unattended: the password comes from an inherited descriptor or the environment
+    private void unlockForBatch(String... args) throws Exception {
+        if (!vaultService.vaultExists()) {
+            System.out.println("No vault found. Run hameed-pm interactively once to create it.");
+            System.exit(1);
+        }
+
+        String fd  = optionValue(args, "--password-fd");
+        String env = optionValue(args, "--password-env");
+        char[] password;
+        try {
+            if (fd != null) {
+                password = PasswordUtil.readPasswordFromFd(Integer.parseInt(fd));
+            } else {
+                password = PasswordUtil.readPasswordFromEnv(env != null ? env : BATCH_PASSWORD_ENV);
+            }
+        } catch (Exception e) {
+            System.out.println("Cannot read the master password for batch mode: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        boolean unlocked = vaultService.unlockVault(VaultFileUtil.DEFAULT_VAULT_NAME, password);
+        Arrays.fill(password, '\0');
+        if (!unlocked) {
+            System.out.println("Wrong password. Exiting.");
+            System.exit(1);
+        }
+        vaultService.getLastRewrap().ifPresent(System.out::println);
+    }
+
+    private String optionValue(String[] args, String name) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(name) && i + 1 < args.length) return args[i + 1];
+            if (args[i].startsWith(name + "=")) return args[i].substring(name.length() + 1);
+        }
+        return null;
+    }
 
     private void printCriteria(Terminal terminal) {
         terminal.writer().println("Password must be at least 12 characters long and include:");
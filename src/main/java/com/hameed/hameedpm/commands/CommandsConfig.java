@@ -1,14 +1,32 @@
 package com.hameed.hameedpm.commands;
 
+import com.hameed.hameedpm.enums.ConflictPolicy;
 import com.hameed.hameedpm.enums.TemplateType;
 import com.hameed.hameedpm.exception.ResourceNotFoundException;
+import com.hameed.hameedpm.model.AuditSummary;
+import com.hameed.hameedpm.model.BreachSummary;
 import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.IngestionOptions;
+import com.hameed.hameedpm.model.IngestionSummary;
+import com.hameed.hameedpm.model.RotationOptions;
+import com.hameed.hameedpm.model.RotationSummary;
+import com.hameed.hameedpm.service.IAgentService;
+import com.hameed.hameedpm.service.IAuditService;
+import com.hameed.hameedpm.service.IBatchService;
+import com.hameed.hameedpm.service.IBreachService;
 import com.hameed.hameedpm.service.ICredentialService;
 import com.hameed.hameedpm.service.IIngestionService;
+import com.hameed.hameedpm.service.IRotationService;
 import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.AuditReport;
+import com.hameed.hameedpm.util.BreachReport;
+import com.hameed.hameedpm.util.IngestionReport;
+import com.hameed.hameedpm.util.Metrics;
+import com.hameed.hameedpm.util.MetricsReport;
+import com.hameed.hameedpm.util.PasswordGenerator;
 import com.hameed.hameedpm.util.PasswordUtil;
+import com.hameed.hameedpm.util.RotationReport;
 import com.hameed.hameedpm.util.StringUtil;
-import com.hameed.hameedpm.util.VaultFileUtil;
 import org.jline.reader.LineReader;
 import org.jline.terminal.Terminal;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,11 +35,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.shell.core.command.*;
 import org.springframework.shell.core.command.availability.Availability;
 import org.springframework.shell.core.command.availability.AvailabilityProvider;
+import org.springframework.shell.core.command.completion.CompletionProposal;
+import org.springframework.shell.core.command.completion.CompletionProvider;
 import org.springframework.shell.core.command.exit.ExitStatusExceptionMapper;
 import org.springframework.shell.jline.tui.component.flow.ComponentFlow;
 import org.springframework.shell.jline.tui.component.flow.SelectItem;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,6 +59,11 @@ public class CommandsConfig {
     private final IVaultService vaultService;
     private final ICredentialService credentialService;
     private final IIngestionService ingestionService;
+    private final IAgentService agentService;
+    private final IBatchService batchService;
+    private final IAuditService auditService;
+    private final IBreachService breachService;
+    private final IRotationService rotationService;
     private final ComponentFlow.Builder componentFlowBuilder;
     private final LineReader lineReader;  // inject Spring Shell's LineReader
 
@@ -41,11 +71,21 @@ public class CommandsConfig {
     public CommandsConfig(IVaultService vaultService,
                           ICredentialService credentialService,
                           IIngestionService ingestionService,
+                          IAgentService agentService,
+                          IBatchService batchService,
+                          IAuditService auditService,
+                          IBreachService breachService,
+                          IRotationService rotationService,
                           ComponentFlow.Builder componentFlowBuilder,
                           LineReader lineReader) {
         this.vaultService = vaultService;
         this.credentialService = credentialService;
         this.ingestionService = ingestionService;
+        this.agentService = agentService;
+        this.batchService = batchService;
+        this.auditService = auditService;
+        this.breachService = breachService;
+        this.rotationService = rotationService;
         this.componentFlowBuilder = componentFlowBuilder;
         this.lineReader = lineReader;
     }
@@ -59,6 +99,9 @@ public class CommandsConfig {
         return arg.value();
     }
 
+    private static final int MAX_COMPLETIONS = 50;
+    private static final int DEFAULT_AUDIT_LIMIT = 20;
+
     @Bean
     public Command addCredentialsCommand() {
         return Command.builder()
@@ -146,7 +189,8 @@ public class CommandsConfig {
                             detailedOption.value() != null &&
                             Boolean.parseBoolean(detailedOption.value());
                     if (detailed) {
-                        credentialService.listCredentials().forEach(cred -> printCredential(ctx, cred));
+                        credentialService.listCredentials()
+                                .forEach(cred -> printCredential(ctx, credentialService.openCredential(cred)));
                     } else {
                         List<Credential> credentials = credentialService.listCredentials();
                         for (int i = 0; i < credentials.size(); i++) {
@@ -165,6 +209,7 @@ public class CommandsConfig {
                 // no .options()
                 .exitStatusExceptionMapper(exceptionMapper())
                 .availabilityProvider(availabilityProvider())
+                .completionProvider(serviceNameCompletion())
                 .execute(ctx -> {
                     String serviceName = requireServiceName(ctx);
                     Credential cred = credentialService.getCredentialByServiceName(serviceName)
@@ -174,6 +219,30 @@ public class CommandsConfig {
                 });
     }
 
+    @Bean
+    public Command searchCredentialsCommand() {
+        return Command.builder()
+                .name("search")
+                .description("Search credentials by service name")
+                .help("Lists the services whose name starts with or contains the given text. Usage: search <text>")
+                .exitStatusExceptionMapper(exceptionMapper())
+                .availabilityProvider(availabilityProvider())
+                .execute(ctx -> {
+                    CommandArgument query = ctx.getArgumentByIndex(0);
+                    if (query == null || query.value() == null || query.value().isBlank()) {
+                        throw new IllegalArgumentException("Search text is required. Usage: search <text>");
+                    }
+                    List<Credential> matches = credentialService.searchCredentials(query.value());
+                    if (matches.isEmpty()) {
+                        ctx.outputWriter().println("No credentials match '" + query.value() + "'.");
+                        return;
+                    }
+                    for (int i = 0; i < matches.size(); i++) {
+                        ctx.outputWriter().println((i + 1) + ". " + matches.get(i).getServiceName());
+                    }
+                });
+    }
+
     @Bean
     public Command updateCredentialCommand() {
         return Command.builder()
@@ -183,6 +252,7 @@ public class CommandsConfig {
                 // no .options()
                 .exitStatusExceptionMapper(exceptionMapper())
                 .availabilityProvider(availabilityProvider())
+                .completionProvider(serviceNameCompletion())
                 .execute(ctx -> {
                     String serviceName = requireServiceName(ctx);
 
@@ -362,6 +432,7 @@ public class CommandsConfig {
                 // no .options()
                 .exitStatusExceptionMapper(exceptionMapper())
                 .availabilityProvider(availabilityProvider())
+                .completionProvider(serviceNameCompletion())
                 .execute(ctx -> {
                     String serviceName = requireServiceName(ctx);
                     try {
@@ -378,18 +449,53 @@ public class CommandsConfig {
         return Command.builder()
                 .name("load")
                 .description("Load the vault")
-                .help("Loads the vault. Usage: load <file-path>")
+                .help("Loads the vault from a file, every file in a directory, or a glob such as 'exports/*.csv'; "
+                        + "files are read in parallel and saved once. Credentials whose service name is already in "
+                        + "the vault are handled by --on-conflict: skip (default), overwrite, merge or keep-newest. "
+                        + "--dry-run reads, validates and compares everything and reports what would change without "
+                        + "changing the vault; --json prints the report as JSON. "
+                        + "Usage: load <file|directory|glob> [--on-conflict <policy>] [--dry-run] [--json]")
+                .options(CommandOption.with()
+                                .longName("on-conflict")
+                                .required(false)
+                                .type(String.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("dry-run")
+                                .required(false)
+                                .type(boolean.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("json")
+                                .required(false)
+                                .type(boolean.class)
+                                .build())
                 .exitStatusExceptionMapper(exceptionMapper())
                 .availabilityProvider(availabilityProvider())
                 .execute(ctx -> {
+                    // get the first argument as file path
+                    CommandArgument filePath = ctx.getArgumentByIndex(0);
+                    if (filePath == null || filePath.value().isBlank()) {
+                        throw new IllegalArgumentException("File path is required. Usage: load <file|directory|glob> [--on-conflict <policy>]");
+                    }
+                    CommandOption onConflict = ctx.getOptionByLongName("on-conflict");
+                    ConflictPolicy policy = onConflict != null && onConflict.value() != null
+                            ? ConflictPolicy.fromOptionValue(onConflict.value())
+                            : ConflictPolicy.SKIP;
+                    boolean dryRun = isSet(ctx.getOptionByLongName("dry-run"));
+                    boolean json = isSet(ctx.getOptionByLongName("json"));
                     try {
-                        // get the first argument as file path
-                        CommandArgument filePath = ctx.getArgumentByIndex(0);
-                        if (filePath == null || filePath.value().isBlank()) {
-                            throw new IllegalArgumentException("File path is required. Usage: load <file-path>");
+                        IngestionSummary summary = ingestionService.ingest(filePath.value(),
+                                new IngestionOptions(policy, dryRun, !json), ctx);
+                        if (json) {
+                            IngestionReport.writeJson(summary, ctx.outputWriter());
+                            ctx.outputWriter().println();
+                        } else {
+                            IngestionReport.print(summary, ctx.outputWriter());
+                            if (!dryRun) ctx.outputWriter().println("Vault loaded successfully.");
                         }
-                        ingestionService.ingest(filePath.value(), ctx);
-                        ctx.outputWriter().println("Vault loaded successfully.");
+                    } catch (RuntimeException e) {
+                        throw e;
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -465,7 +571,7 @@ public class CommandsConfig {
                                     return;
                                 }
 
-                                vaultService.createEncryptedVault(VaultFileUtil.DEFAULT_VAULT_NAME, newPassword);
+                                vaultService.createEncryptedVault(vaultService.getCurrentVaultName(), newPassword);
                                 Arrays.fill(newPassword, '\0');
                                 Arrays.fill(confirm,  '\0');
                                 ctx.outputWriter().println("Master password reset successfully.");
@@ -478,6 +584,390 @@ public class CommandsConfig {
                 });
     }
 
+    @Bean
+    public Command batchCommand() {
+        return Command.builder()
+                .name("batch")
+                .description("Run a script of add/update/delete/load commands as one transaction")
+                .help("Runs the commands in the file (or stdin for '-') against the vault and saves once at the end; "
+                        + "nothing is saved if a command fails. From the command line the master password is read "
+                        + "from --password-fd or --password-env. Usage: batch <file|-> [--password-fd <n>] [--password-env <name>]")
+                // consumed by VaultUnlockRunner before the command runs
+                .options(CommandOption.with()
+                                .longName("password-fd")
+                                .required(false)
+                                .type(int.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("password-env")
+                                .required(false)
+                                .type(String.class)
+                                .build())
+                .exitStatusExceptionMapper(exceptionMapper())
+                .availabilityProvider(availabilityProvider())
+                .execute(ctx -> {
+                    CommandArgument source = ctx.getArgumentByIndex(0);
+                    if (source == null || source.value() == null || source.value().isBlank()) {
+                        throw new IllegalArgumentException("Script is required. Usage: batch <file|->");
+                    }
+                    try (BufferedReader script = source.value().equals("-")
+                            ? new BufferedReader(new InputStreamReader(System.in))
+                            : Files.newBufferedReader(Paths.get(source.value()))) {
+                        batchService.run(script, ctx);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    @Bean
+    public Command agentCommand() {
+        return Command.builder()
+                .name("agent")
+                .description("Serve the unlocked vault to other hameed-pm invocations")
+                .help("Keeps this vault unlocked behind a local socket so 'hameed-pm get|list|search|add ...' "
+                        + "can be answered without the master password. Stops when idle or on Ctrl+C. Usage: agent")
+                .exitStatusExceptionMapper(exceptionMapper())
+                .availabilityProvider(availabilityProvider())
+                .execute(ctx -> {
+                    try {
+                        agentService.serve(ctx.outputWriter());
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    @Bean
+    public Command kdfCommand() {
+        return Command.builder()
+                .name("kdf")
+                .description("Show the key derivation cost of the vault")
+                .help("Prints the PBKDF2 iteration count stored in the vault and how long deriving the key took "
+                        + "at the last unlock. The cost is re-tuned on unlock when it drifts from "
+                        + "hameed-pm.kdf.target-derive-time. Usage: kdf")
+                .exitStatusExceptionMapper(exceptionMapper())
+                .availabilityProvider(availabilityProvider())
+                .execute(ctx -> {
+                    ctx.outputWriter().printf(" algorithm: PBKDF2-HMAC-SHA256%n iterations: %d%n last derive time: %d ms%n",
+                            vaultService.getKdfIterations(), vaultService.getLastDeriveTime().toMillis());
+                });
+    }
+
+    @Bean
+    public Command vaultCommand() {
+        return Command.builder()
+                .name("vault")
+                .description("Open, switch between and close named vaults")
+                .help("Keeps several vaults unlocked at once. 'open' unlocks a vault (creating it if it does not "
+                        + "exist) and makes it current, 'switch' returns to a vault that is still open without the "
+                        + "master password, 'close' locks one and wipes its keys. Open vaults that go unused are "
+                        + "closed after hameed-pm.vaults.idle-timeout. "
+                        + "Usage: vault [list] | vault open <name> | vault switch <name> | vault close [name]")
+                .exitStatusExceptionMapper(exceptionMapper())
+                .execute(ctx -> {
+                    CommandArgument action = ctx.getArgumentByIndex(0);
+                    CommandArgument name   = ctx.getArgumentByIndex(1);
+                    String vaultName = name != null && name.value() != null && !name.value().isBlank()
+                            ? name.value() : null;
+                    try {
+                        switch (action == null || action.value() == null ? "list" : action.value()) {
+                            case "list" -> printOpenVaults(ctx);
+                            case "open" -> openVault(ctx, requireVaultName(vaultName, "open"));
+                            case "switch" -> {
+                                String target = requireVaultName(vaultName, "switch");
+                                if (!vaultService.switchVault(target)) {
+                                    throw new IllegalArgumentException("Vault '" + target
+                                            + "' is not open. Usage: vault open " + target);
+                                }
+                                ctx.outputWriter().println("Switched to vault '" + target + "'.");
+                            }
+                            case "close" -> {
+                                String target = vaultName != null ? vaultName : vaultService.getCurrentVaultName();
+                                if (target == null) {
+                                    throw new IllegalArgumentException("No vault is open.");
+                                }
+                                vaultService.closeVault(target);
+                                ctx.outputWriter().println("Vault '" + target + "' closed.");
+                                if (vaultService.getCurrentVaultName() != null) {
+                                    ctx.outputWriter().println("Current vault is '" + vaultService.getCurrentVaultName() + "'.");
+                                }
+                            }
+                            default -> throw new IllegalArgumentException(
+                                    "Unknown action: " + action.value() + ". Usage: vault [list|open|switch|close] [name]");
+                        }
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    private String requireVaultName(String vaultName, String action) {
+        if (vaultName == null) {
+            throw new IllegalArgumentException("Vault name is required. Usage: vault " + action + " <name>");
+        }
+        StringUtil.requireSafeName(vaultName, "vaultName");
+        return vaultName;
+    }
+
+    private void openVault(CommandContext ctx, String vaultName) throws Exception {
+        // still unlocked in the cache: no password, no key derivation
+        if (vaultService.switchVault(vaultName)) {
+            ctx.outputWriter().println("Switched to vault '" + vaultName + "'.");
+            return;
+        }
+
+        if (!vaultService.vaultExists(vaultName)) {
+            ctx.outputWriter().println("No vault named '" + vaultName + "' yet. Set a master password to create it.");
+            printCriteria(ctx);
+            ctx.outputWriter().flush();
+            char[] password = PasswordUtil.promptPassword("Set master password: ", lineReader);
+            char[] confirm  = PasswordUtil.promptPassword("Confirm master password: ", lineReader);
+            try {
+                if (!PasswordUtil.validPassword(password)) {
+                    throw new IllegalArgumentException("Password does not meet strength requirements.");
+                }
+                if (!Arrays.equals(password, confirm)) {
+                    throw new IllegalArgumentException("Passwords do not match.");
+                }
+                vaultService.createEncryptedVault(vaultName, password);
+            } finally {
+                Arrays.fill(password, '\0');
+                Arrays.fill(confirm,  '\0');
+            }
+            ctx.outputWriter().println("Vault '" + vaultName + "' created and opened.");
+            return;
+        }
+
+        char[] password = PasswordUtil.promptPassword("Master password for '" + vaultName + "': ", lineReader);
+        try {
+            if (!vaultService.unlockVault(vaultName, password)) {
+                throw new IllegalArgumentException("Wrong password for vault '" + vaultName + "'.");
+            }
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+        ctx.outputWriter().println("Vault '" + vaultName + "' unlocked.");
+        vaultService.getLastRewrap().ifPresent(ctx.outputWriter()::println);
+    }
+
+    private void printOpenVaults(CommandContext ctx) {
+        List<String> open = vaultService.getOpenVaults();
+        if (open.isEmpty()) {
+            ctx.outputWriter().println("No vault is open. Usage: vault open <name>");
+            return;
+        }
+        String current = vaultService.getCurrentVaultName();
+        open.forEach(name -> ctx.outputWriter().println((name.equals(current) ? "* " : "  ") + name));
+    }
+
+    @Bean
+    public Command auditCommand() {
+        return Command.builder()
+                .name("audit")
+                .description("Find weak and reused passwords")
+                .help("Scores every password against the password policy, its entropy and common patterns "
+                        + "(sequences, repeats, years, common passwords, the account's own names), finds passwords "
+                        + "shared by several credentials, and lists the riskiest first. --limit sets how many "
+                        + "credentials and reuse groups are listed (default " + DEFAULT_AUDIT_LIMIT + ", 0 for all). "
+                        + "Usage: audit [--limit <n>] [--json]")
+                .options(CommandOption.with()
+                                .longName("limit")
+                                .required(false)
+                                .type(int.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("json")
+                                .required(false)
+                                .type(boolean.class)
+                                .build())
+                .exitStatusExceptionMapper(exceptionMapper())
+                .availabilityProvider(availabilityProvider())
+                .execute(ctx -> {
+                    CommandOption limitOption = ctx.getOptionByLongName("limit");
+                    int limit = DEFAULT_AUDIT_LIMIT;
+                    if (limitOption != null && limitOption.value() != null) {
+                        try {
+                            limit = Integer.parseInt(limitOption.value().trim());
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Limit must be a whole number: " + limitOption.value());
+                        }
+                    }
+                    try {
+                        AuditSummary summary = auditService.audit(limit);
+                        if (isSet(ctx.getOptionByLongName("json"))) {
+                            AuditReport.writeJson(summary, ctx.outputWriter());
+                            ctx.outputWriter().println();
+                        } else {
+                            AuditReport.print(summary, ctx.outputWriter());
+                        }
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    @Bean
+    public Command breachCheckCommand() {
+        return Command.builder()
+                .name("breach-check")
+                .description("Find passwords that appear in a breached-password corpus")
+                .help("Looks up every password in a local, sorted SHA-1 password file such as the Pwned Passwords "
+                        + "dump ordered by hash; nothing is sent over the network. The corpus defaults to "
+                        + "hameed-pm.breach.corpus. --build-filter writes a Bloom filter next to the corpus "
+                        + "(<corpus>.bloom) that later checks use to skip most lookups; it does not need the vault. "
+                        + "Usage: breach-check [<corpus>] [--build-filter] [--json]")
+                .options(CommandOption.with()
+                                .longName("build-filter")
+                                .required(false)
+                                .type(boolean.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("json")
+                                .required(false)
+                                .type(boolean.class)
+                                .build())
+                .exitStatusExceptionMapper(exceptionMapper())
+                .execute(ctx -> {
+                    CommandArgument corpus = ctx.getArgumentByIndex(0);
+                    String corpusPath = corpus != null ? corpus.value() : null;
+                    try {
+                        if (isSet(ctx.getOptionByLongName("build-filter"))) {
+                            ctx.outputWriter().println("Filter written to " + breachService.buildFilter(corpusPath, ctx.outputWriter()));
+                            return;
+                        }
+                        if (!vaultService.isVaultUnlocked()) {
+                            throw new IllegalStateException("You cannot use this command unless you have an unlocked vault.");
+                        }
+                        BreachSummary summary = breachService.check(corpusPath);
+                        if (isSet(ctx.getOptionByLongName("json"))) {
+                            BreachReport.writeJson(summary, ctx.outputWriter());
+                            ctx.outputWriter().println();
+                        } else {
+                            BreachReport.print(summary, ctx.outputWriter());
+                        }
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    @Bean
+    public Command rotateCommand() {
+        return Command.builder()
+                .name("rotate")
+                .description("Give many credentials new generated passwords at once")
+                .help("Replaces the password of every credential whose service name matches --pattern (a glob "
+                        + "such as 'aws-*') and/or whose additional info has --field (a key, or key=value) with a "
+                        + "random password that meets the password policy, and saves all of them once. The new "
+                        + "passwords are printed, or with --export written to a new CSV file together with the old "
+                        + "ones. --length sets the password length (default " + PasswordGenerator.DEFAULT_LENGTH
+                        + "); --dry-run lists the selection without changing anything. "
+                        + "Usage: rotate [--pattern <glob>] [--field <key[=value]>] [--length <n>] [--export <file>] [--dry-run]")
+                .options(CommandOption.with()
+                                .longName("pattern")
+                                .required(false)
+                                .type(String.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("field")
+                                .required(false)
+                                .type(String.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("length")
+                                .required(false)
+                                .type(int.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("export")
+                                .required(false)
+                                .type(String.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("dry-run")
+                                .required(false)
+                                .type(boolean.class)
+                                .build())
+                .exitStatusExceptionMapper(exceptionMapper())
+                .availabilityProvider(availabilityProvider())
+                .execute(ctx -> {
+                    CommandOption pattern = ctx.getOptionByLongName("pattern");
+                    CommandOption field = ctx.getOptionByLongName("field");
+                    CommandOption lengthOption = ctx.getOptionByLongName("length");
+                    CommandOption export = ctx.getOptionByLongName("export");
+                    int length = PasswordGenerator.DEFAULT_LENGTH;
+                    if (lengthOption != null && lengthOption.value() != null) {
+                        try {
+                            length = Integer.parseInt(lengthOption.value().trim());
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Length must be a whole number: " + lengthOption.value());
+                        }
+                    }
+                    try {
+                        RotationSummary summary = rotationService.rotate(new RotationOptions(
+                                pattern != null ? pattern.value() : null,
+                                field != null ? field.value() : null,
+                                length,
+                                isSet(ctx.getOptionByLongName("dry-run")),
+                                export != null && export.value() != null && !export.value().isBlank()
+                                        ? Paths.get(export.value()) : null));
+                        RotationReport.print(summary, ctx.outputWriter());
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    @Bean
+    public Command statsCommand() {
+        return Command.builder()
+                .name("stats")
+                .description("Show timings and counters of vault operations")
+                .help("Prints latency percentiles, bytes and allocation per operation for unlock, persist, ingest "
+                        + "and lookups since startup. Usage: stats [--json] [--reset]")
+                .options(CommandOption.with()
+                                .longName("json")
+                                .required(false)
+                                .type(boolean.class)
+                                .build(),
+                        CommandOption.with()
+                                .longName("reset")
+                                .required(false)
+                                .type(boolean.class)
+                                .build())
+                .exitStatusExceptionMapper(exceptionMapper())
+                .execute(ctx -> {
+                    try {
+                        if (isSet(ctx.getOptionByLongName("json"))) {
+                            MetricsReport.writeJson(ctx.outputWriter());
+                            ctx.outputWriter().println();
+                        } else {
+                            MetricsReport.print(ctx.outputWriter());
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    if (isSet(ctx.getOptionByLongName("reset"))) {
+                        Metrics.reset();
+                    }
+                });
+    }
+
+    private boolean isSet(CommandOption option) {
+        return option != null && option.value() != null && Boolean.parseBoolean(option.value());
+    }
+
     @Bean
     public ExitStatusExceptionMapper exceptionMapper() {
         return exception -> {
@@ -497,6 +987,19 @@ public class CommandsConfig {
                 : Availability.unavailable("You cannot use this command unless you have an unlocked vault.");
     }
 
+    // completes the service-name argument from the vault's sorted index
+    private CompletionProvider serviceNameCompletion() {
+        return completionContext -> {
+            if (!vaultService.isVaultUnlocked() || completionContext.getWordIndex() != 1) {
+                return List.of();
+            }
+            String prefix = completionContext.currentWordUpToCursor();
+            return credentialService.completeServiceName(prefix, MAX_COMPLETIONS).stream()
+                    .map(CompletionProposal::new)
+                    .toList();
+        };
+    }
+
     private void printCredential(CommandContext ctx, Credential cred) {
         ctx.outputWriter().printf(" username: %s%n password: %s%n", cred.getUsername(), cred.getPassword());
         cred.getAdditionalInfo().forEach((key, value) -> ctx.outputWriter().printf(" %s: %s%n", key, value));
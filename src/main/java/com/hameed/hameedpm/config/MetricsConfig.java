@@ -0,0 +1,40 @@
+package com.hameed.hameedpm.config;
+
+import com.hameed.hameedpm.util.Metrics;
+import com.hameed.hameedpm.util.MetricsReport;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+public class MetricsConfig {
+
+    private final String dumpFile;
+
+    public MetricsConfig(@Value("${hameed-pm.metrics.enabled:true}") boolean enabled,
+                         @Value("${hameed-pm.metrics.dump-file:}") String dumpFile) {
+        Metrics.setEnabled(enabled);
+        this.dumpFile = dumpFile;
+    }
+
+    // written once the shell exits, after the vault service has flushed its last writes
+    @PreDestroy
+    public void dump() {
+        if (dumpFile == null || dumpFile.isBlank() || !Metrics.isEnabled()) return;
+        Path path = Path.of(dumpFile.replaceFirst("^~", System.getProperty("user.home")));
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(path)) {
+                MetricsReport.writeJson(writer);
+            }
+        } catch (Exception e) {
+            System.out.println("Failed to write metrics to " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,5 @@
 package com.hameed.hameedpm.config;
 
-import com.hameed.hameedpm.model.Credential;
-import com.hameed.hameedpm.model.Vault;
-import com.hameed.hameedpm.model.VaultFile;
-import org.springframework.aot.hint.MemberCategory;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
 import org.springframework.context.annotation.Configuration;
@@ -17,10 +13,10 @@ public class NativeHintsConfig {
 
         @Override
         public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
-            hints.reflection()
-                    .registerType(VaultFile.class,  MemberCategory.values())
-                    .registerType(Vault.class,       MemberCategory.values())
-                    .registerType(Credential.class,  MemberCategory.values());
+            // vault files are read and written by VaultCodec and VaultJsonCodec without reflection
+
+            // import formats are listed for ServiceLoader
+            hints.resources().registerPattern("META-INF/services/com.hameed.hameedpm.service.Parser");
 
             // Spring Shell component templates — needed by all UI components
             hints.resources()
@@ -0,0 +1,35 @@
+package com.hameed.hameedpm.enums;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// What load does when an imported credential has the same service name as one already in the vault
+public enum ConflictPolicy {
+    // keep the vault's record; a differing import is reported as a conflict
+    SKIP("skip"),
+    // replace the vault's record with the imported one
+    OVERWRITE("overwrite"),
+    // take the imported username and password and merge additional info, imported keys winning
+    MERGE("merge"),
+    // keep whichever record was modified last; records without a date count as oldest
+    KEEP_NEWEST("keep-newest");
+
+    private final String optionValue;
+
+    ConflictPolicy(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static ConflictPolicy fromOptionValue(String value) {
+        return Arrays.stream(values())
+                .filter(policy -> policy.optionValue.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown conflict policy: " + value
+                        + " (use " + Arrays.stream(values()).map(ConflictPolicy::getOptionValue)
+                        .collect(Collectors.joining(", ")) + ")"));
+    }
+}
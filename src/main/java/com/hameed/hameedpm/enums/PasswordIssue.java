@@ -0,0 +1,24 @@
+package com.hameed.hameedpm.enums;
+
+// Why the audit considers a password weak, most serious first
+public enum PasswordIssue {
+    EMPTY("empty"),
+    REUSED("reused"),
+    COMMON_WORD("common password"),
+    BELOW_POLICY("below policy"),
+    LOW_ENTROPY("low entropy"),
+    SEQUENCE("sequence"),
+    REPEATED_CHARACTERS("repeated characters"),
+    CONTAINS_YEAR("contains a year"),
+    CONTAINS_NAME("contains account name");
+
+    private final String description;
+
+    PasswordIssue(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,18 @@
+package com.hameed.hameedpm.enums;
+
+// Why an imported record cannot be stored
+public enum RecordError {
+    MISSING_SERVICE_NAME("no service name"),
+    MISSING_USERNAME("no username"),
+    MISSING_PASSWORD("no password");
+
+    private final String description;
+
+    RecordError(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,9 @@
+package com.hameed.hameedpm.exception;
+
+// A transaction failed to commit and the vault on disk could not be brought back to its state from
+// before the transaction: some of its changes may be saved and replay on the next unlock.
+public class CommitOutcomeUnknownException extends RuntimeException {
+    public CommitOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,30 @@
+package com.hameed.hameedpm.model;
+
+import com.hameed.hameedpm.enums.PasswordIssue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// What one audit found. Entries are ranked riskiest first and, like the reuse groups, may be cut to
+// the requested limit; the counts always cover the whole vault. No password or password hash is kept.
+public record AuditSummary(int credentials,
+                           int weak,
+                           int reused,
+                           Map<PasswordIssue, Integer> issueCounts,
+                           List<Entry> entries,
+                           int reuseGroupCount,
+                           List<ReuseGroup> reuseGroups,
+                           long nanos) {
+
+    // reuseCount is how many credentials share this password, 1 when it is not reused
+    public record Entry(String serviceName, String username, int score, double entropyBits,
+                        Set<PasswordIssue> issues, int reuseCount) {}
+
+    // credentials sharing one password; serviceNames is a sample, in vault order
+    public record ReuseGroup(int count, List<String> serviceNames) {}
+
+    public double credentialsPerSecond() {
+        return nanos > 0 ? credentials * 1_000_000_000.0 / nanos : 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.hameed.hameedpm.model;
+
+import java.util.List;
+
+// What one breach check found. Matches are the credentials whose password is in the corpus, most
+// often breached first. Passwords used by several credentials are looked up once.
+public record BreachSummary(String corpus,
+                            long corpusBytes,
+                            FilterStatus filter,
+                            int credentials,
+                            int distinctPasswords,
+                            int filtered,
+                            int searched,
+                            List<Match> matches,
+                            long nanos) {
+
+    // whether the Bloom filter sidecar answered misses; a stale one was built for another corpus
+    public enum FilterStatus { NONE, USED, STALE }
+
+    // count is how often the password was seen in breaches
+    public record Match(String serviceName, String username, long count) {}
+
+    public double passwordsPerSecond() {
+        return nanos > 0 ? distinctPasswords * 1_000_000_000.0 / nanos : 0;
+    }
+}
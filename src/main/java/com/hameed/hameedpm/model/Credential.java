@@ -1,14 +1,9 @@
 package com.hameed.hameedpm.model;
 
-
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
-
-import java.util.HashMap;
+import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
 public class Credential {
 
     private String serviceName;
@@ -16,6 +11,14 @@ public class Credential {
     private String password;
     private Map<String, String> additionalInfo;
 
+    // password and additional info sealed with the vault's record key (iv + ciphertext);
+    // while set, the plaintext fields are null until the credential is opened
+    private byte[] sealedSecret;
+
+    // when the record was last changed, stored next to the readable fields; null when unknown
+    // (records written before it was tracked, imports without dates)
+    private Instant modifiedAt;
+
     public Credential() {}
 
     public Credential(String serviceName, String username, String password, Map<String, String> additionalInfo) {
@@ -31,7 +34,9 @@ public class Credential {
         this.username = other.username;
         this.password = other.password;
         // deep copy
-        this.additionalInfo = new HashMap<>(other.additionalInfo);
+        this.additionalInfo = other.additionalInfo != null ? new LinkedHashMap<>(other.additionalInfo) : null;
+        this.sealedSecret = other.sealedSecret;
+        this.modifiedAt = other.modifiedAt;
     }
 
     public String getServiceName() {
@@ -66,6 +71,26 @@ public class Credential {
         this.additionalInfo = additionalInfo;
     }
 
+    public byte[] getSealedSecret() {
+        return sealedSecret;
+    }
+
+    public void setSealedSecret(byte[] sealedSecret) {
+        this.sealedSecret = sealedSecret;
+    }
+
+    public Instant getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(Instant modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+
+    public boolean isSealed() {
+        return sealedSecret != null;
+    }
+
     public boolean addInfo(String key, String value) {
         if (additionalInfo == null) {
             additionalInfo = new LinkedHashMap<>();
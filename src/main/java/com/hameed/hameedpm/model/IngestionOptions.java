@@ -0,0 +1,12 @@
+package com.hameed.hameedpm.model;
+
+import com.hameed.hameedpm.enums.ConflictPolicy;
+
+// How load treats its input: the conflict policy, whether the vault is left untouched, and
+// whether a progress line is written while the files are read
+public record IngestionOptions(ConflictPolicy onConflict, boolean dryRun, boolean showProgress) {
+
+    public static IngestionOptions defaults() {
+        return new IngestionOptions(ConflictPolicy.SKIP, false, true);
+    }
+}
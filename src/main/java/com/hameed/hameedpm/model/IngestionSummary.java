@@ -0,0 +1,37 @@
+package com.hameed.hameedpm.model;
+
+import com.hameed.hameedpm.enums.RecordError;
+
+import java.util.List;
+import java.util.Map;
+
+// What one load read and did, or would do for a dry run. Rows are "file:record", counting records
+// from 1 in each file (for CSV, the first row after the header). Lists of rows and groups are
+// samples; the counts are complete.
+public record IngestionSummary(List<FileSummary> files,
+                               Map<RecordError, ErrorGroup> errors,
+                               int duplicateGroupCount,
+                               List<DuplicateGroup> duplicateGroups,
+                               UpsertReport outcome,
+                               long nanos,
+                               boolean dryRun) {
+
+    public record FileSummary(String path, String format, long records, long rejected, long bytes, long nanos, String error) {
+        public double recordsPerSecond() {
+            return nanos > 0 ? records * 1_000_000_000.0 / nanos : 0;
+        }
+    }
+
+    public record ErrorGroup(long count, List<String> rows) {}
+
+    // rows sharing a service name; kept is the row that won the merge
+    public record DuplicateGroup(String serviceName, List<String> rows, String kept) {}
+
+    public long records() {
+        return files.stream().mapToLong(FileSummary::records).sum();
+    }
+
+    public double recordsPerSecond() {
+        return nanos > 0 ? records() * 1_000_000_000.0 / nanos : 0;
+    }
+}
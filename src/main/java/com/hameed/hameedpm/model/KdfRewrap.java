@@ -0,0 +1,14 @@
+package com.hameed.hameedpm.model;
+
+// Outcome of re-wrapping a vault under a re-tuned key derivation cost while unlocking it. failure is
+// null when the new cost was saved; otherwise the vault stays unlocked and the next unlock tries again.
+public record KdfRewrap(int fromIterations, int toIterations, long deriveMillis, String failure) {
+
+    @Override
+    public String toString() {
+        return failure == null
+                ? "Key derivation updated from " + fromIterations + " to " + toIterations
+                        + " iterations (about " + deriveMillis + " ms per unlock)."
+                : "Could not update key derivation cost: " + failure;
+    }
+}
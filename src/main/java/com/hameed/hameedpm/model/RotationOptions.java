@@ -0,0 +1,8 @@
+package com.hameed.hameedpm.model;
+
+import java.nio.file.Path;
+
+// Which credentials a rotation changes and what it does with the new passwords. namePattern is a
+// glob over service names (`aws-*`), field an additional-info key (`env`) or key and value
+// (`env=prod`); given both, a credential must match both. export may be null.
+public record RotationOptions(String namePattern, String field, int length, boolean dryRun, Path export) {}
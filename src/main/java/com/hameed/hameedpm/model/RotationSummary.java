@@ -0,0 +1,11 @@
+package com.hameed.hameedpm.model;
+
+import java.util.List;
+
+// The credentials one rotation changed, or would change for a dry run, in vault order. The old
+// password is kept so it can be exported with the new one for changing it at the service.
+public record RotationSummary(List<Rotation> rotations, boolean dryRun, String export, long nanos) {
+
+    // newPassword is null for a dry run
+    public record Rotation(String serviceName, String username, String oldPassword, String newPassword) {}
+}
@@ -0,0 +1,25 @@
+package com.hameed.hameedpm.model;
+
+import java.util.List;
+
+// Outcome of a bulk load: every incoming record lands in exactly one of the counts. Duplicates are
+// records dropped before the diff because another record for the same service name won the merge.
+// conflicts names the first few conflicting records.
+public record UpsertReport(int inserted, int updated, int unchanged, int conflicting, int rejected, int duplicates,
+                           List<String> conflicts) {
+
+    public int total() {
+        return inserted + updated + unchanged + conflicting + rejected + duplicates;
+    }
+
+    public UpsertReport withMerged(int rejected, int duplicates) {
+        return new UpsertReport(inserted, updated, unchanged, conflicting,
+                this.rejected + rejected, this.duplicates + duplicates, conflicts);
+    }
+
+    @Override
+    public String toString() {
+        return "Inserted " + inserted + ", updated " + updated + ", unchanged " + unchanged
+                + ", conflicting " + conflicting + ", rejected " + rejected + ", duplicates " + duplicates + ".";
+    }
+}
@@ -1,25 +1,78 @@
 package com.hameed.hameedpm.model;
 
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.hameed.hameedpm.util.CredentialSealer;
+import com.hameed.hameedpm.util.CryptoUtil;
 
+import javax.crypto.SecretKey;
+
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
 
-
-@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+// Writers are serialized by VaultService, one change at a time. Readers on any thread go through the
+// StampedLock: point lookups, completion and search take an optimistic read of the concurrent indexes,
+// which a racing writer cannot break, and fall back to the read lock if a change overlapped. Both
+// indexes are updated in place, so the first read after a change copies nothing. Listing works on an
+// immutable copy of the credentials, taken on the first listing after a change.
 public class Vault {
 
+    // below this many records a bulk put seals on the calling thread
+    private static final int PARALLEL_SEAL_THRESHOLD = 1_000;
+
     private String name;
     private byte[] signingKey;
-    private List<Credential> credentials = new ArrayList<>();
+    // seals each credential's password and additional info; kept in the header, so a password
+    // reset re-encrypts the header only
+    private byte[] recordKey;
+    // credentials in vault order by case-folded service name, so a replacement keeps its place
+    // without a search; a vault written by an early version may repeat a name, and the later copies,
+    // which lookups never reach, are kept aside so they are still saved
+    private final LinkedHashMap<String, Credential> records = new LinkedHashMap<>();
+    private final List<Credential> shadowed = new ArrayList<>();
+
+    private SecretKey recordSecretKey;
+
+    // case-folded service name -> credential, never serialized; concurrent because lookups read it
+    // without the lock
+    private final Map<String, Credential> index = new ConcurrentHashMap<>();
+
+    // same keys kept in order, for prefix search and completion
+    private final NavigableMap<String, Credential> sortedIndex = new ConcurrentSkipListMap<>();
+
+    // keys changed since the last persist, used to rewrite only the touched segments
+    private final Set<String> dirtyKeys = new HashSet<>();
+
+    // keys changed since the last journal append
+    private final Set<String> pendingKeys = new HashSet<>();
+
+    // not reentrant: locked methods never call each other
+    private final StampedLock lock = new StampedLock();
+
+    // what listings see; null after a change until the next listing copies it
+    private volatile List<Credential> view;
+
+    // in-memory state to return to when a batch of changes is abandoned before it is persisted
+    public record Savepoint(List<Credential> credentials, Set<String> dirtyKeys, Set<String> pendingKeys) {}
 
     public Vault() {}
 
     public Vault(String name, List<Credential> credentials) {
         this.name = name;
-        this.credentials = credentials;
+        setCredentials(credentials);
     }
 
     public String getName() {
@@ -30,12 +83,28 @@ public class Vault {
         this.name = name;
     }
 
+    // immutable snapshot, safe to iterate while the vault changes
     public List<Credential> getCredentials() {
-        return credentials;
+        return view();
+    }
+
+    // without copying a view; the save path asks on every change
+    public int credentialCount() {
+        long stamp = lock.readLock();
+        try {
+            return records.size() + shadowed.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     public void setCredentials(List<Credential> credentials) {
-        this.credentials = credentials;
+        long stamp = lock.writeLock();
+        try {
+            replaceAll(credentials != null ? credentials : List.of());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     public byte[] getSigningKey() {
@@ -45,4 +114,349 @@ public class Vault {
     public void setSigningKey(byte[] signingKey) {
         this.signingKey = signingKey;
     }
+
+    public byte[] getRecordKey() {
+        return recordKey;
+    }
+
+    public void setRecordKey(byte[] recordKey) {
+        this.recordKey = recordKey;
+        this.recordSecretKey = recordKey != null ? CryptoUtil.keyFromBytes(recordKey) : null;
+    }
+
+    // zeroes the signing and record keys once the vault is locked or closed; credentials stay sealed
+    public void wipeKeys() {
+        if (signingKey != null) Arrays.fill(signingKey, (byte) 0);
+        if (recordKey != null) Arrays.fill(recordKey, (byte) 0);
+        CryptoUtil.destroyKey(recordSecretKey);
+        signingKey      = null;
+        recordKey       = null;
+        recordSecretKey = null;
+    }
+
+    public void rebuildIndex() {
+        long stamp = lock.writeLock();
+        try {
+            reindex();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void replaceAll(List<Credential> credentials) {
+        records.clear();
+        shadowed.clear();
+        for (Credential credential : credentials) {
+            // first entry wins, same as the old linear scan
+            if (records.putIfAbsent(indexKey(credential.getServiceName()), credential) != null) {
+                shadowed.add(credential);
+            }
+        }
+        reindex();
+    }
+
+    private void reindex() {
+        index.clear();
+        index.putAll(records);
+        sortedIndex.clear();
+        sortedIndex.putAll(records);
+        view = null;
+    }
+
+    public Optional<Credential> findCredential(String serviceName) {
+        return Optional.ofNullable(lookup(indexKey(serviceName)));
+    }
+
+    // optimistic first; a read that overlapped a change is retried under the read lock, so a lookup
+    // never sees half of a putAll
+    private Credential lookup(String key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Credential credential = index.get(key);
+            if (lock.validate(stamp)) return credential;
+        }
+        stamp = lock.readLock();
+        try {
+            return index.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private List<Credential> view() {
+        List<Credential> current = view;
+        if (current != null) return current;
+        long stamp = lock.readLock();
+        try {
+            // writers are excluded while the copy is taken, so it cannot be published stale
+            current = view;
+            if (current == null) {
+                current = Collections.unmodifiableList(inOrder());
+                view = current;
+            }
+            return current;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // a new list of every credential in vault order; callers hold the lock
+    private List<Credential> inOrder() {
+        List<Credential> all = new ArrayList<>(records.size() + shadowed.size());
+        all.addAll(records.values());
+        all.addAll(shadowed);
+        return all;
+    }
+
+    // plaintext copy of the credential; the stored one stays sealed
+    public Optional<Credential> openCredential(String serviceName) {
+        return findCredential(serviceName).map(this::open);
+    }
+
+    public Credential open(Credential credential) {
+        return CredentialSealer.open(credential, recordSecretKey);
+    }
+
+    // seals credentials that were loaded in the clear (vaults written before records were sealed);
+    // returns how many were sealed
+    public int sealAll() {
+        if (recordSecretKey == null) return 0;
+        long stamp = lock.writeLock();
+        try {
+            int sealed = 0;
+            for (Credential credential : inOrder()) {
+                if (!credential.isSealed()) {
+                    CredentialSealer.seal(credential, recordSecretKey);
+                    sealed++;
+                }
+            }
+            return sealed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean containsCredential(String serviceName) {
+        return lookup(indexKey(serviceName)) != null;
+    }
+
+    // credentials whose service name starts with the prefix (case-insensitive), in name order; walks
+    // only the matching range of the index, so completion costs the same at any vault size
+    public List<Credential> findByPrefix(String prefix, int limit) {
+        String key = indexKey(prefix);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            List<Credential> matches = prefixMatches(key, limit);
+            if (lock.validate(stamp)) return matches;
+        }
+        stamp = lock.readLock();
+        try {
+            return prefixMatches(key, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // prefix matches first, then names containing the query anywhere else
+    public List<Credential> search(String query) {
+        String key = indexKey(query);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            List<Credential> matches = searchMatches(key);
+            if (lock.validate(stamp)) return matches;
+        }
+        stamp = lock.readLock();
+        try {
+            return searchMatches(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private List<Credential> prefixMatches(String key, int limit) {
+        List<Credential> matches = new ArrayList<>(Math.min(limit, 64));
+        for (Credential credential : prefixRange(key).values()) {
+            if (matches.size() == limit) break;
+            matches.add(credential);
+        }
+        return matches;
+    }
+
+    private List<Credential> searchMatches(String key) {
+        List<Credential> matches = new ArrayList<>(prefixRange(key).values());
+        for (Map.Entry<String, Credential> entry : sortedIndex.entrySet()) {
+            if (!entry.getKey().startsWith(key) && entry.getKey().contains(key)) {
+                matches.add(entry.getValue());
+            }
+        }
+        return matches;
+    }
+
+    private NavigableMap<String, Credential> prefixRange(String key) {
+        return sortedIndex.subMap(key, true, key + Character.MAX_VALUE, false);
+    }
+
+    public boolean addCredential(Credential credential) {
+        String key = indexKey(credential.getServiceName());
+        long stamp = lock.writeLock();
+        try {
+            if (records.containsKey(key)) return false;
+            if (credential.getModifiedAt() == null) credential.setModifiedAt(Instant.now());
+            put(key, credential);
+            view = null;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // inserts or replaces every credential under one write lock, so readers see all of them or none;
+    // modification times that came with the credentials are kept. The last one per name wins.
+    public void putAll(Collection<Credential> changes) {
+        if (changes.isEmpty()) return;
+        Map<String, Credential> byKey = new LinkedHashMap<>();
+        changes.forEach(credential -> byKey.put(indexKey(credential.getServiceName()), credential));
+        Instant now = Instant.now();
+        for (Credential credential : byKey.values()) {
+            if (credential.getModifiedAt() == null) credential.setModifiedAt(now);
+        }
+        // each record is sealed on its own, so large loads are sealed across cores before the lock is taken
+        SecretKey sealKey = recordSecretKey;
+        if (sealKey != null) {
+            Stream<Credential> unsealed = byKey.values().stream();
+            if (byKey.size() >= PARALLEL_SEAL_THRESHOLD) unsealed = unsealed.parallel();
+            unsealed.forEach(credential -> CredentialSealer.seal(credential, sealKey));
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            for (Map.Entry<String, Credential> change : byKey.entrySet()) {
+                index(change.getKey(), change.getValue());
+            }
+            view = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void put(String key, Credential credential) {
+        if (recordSecretKey != null) CredentialSealer.seal(credential, recordSecretKey);
+        index(key, credential);
+    }
+
+    // a replaced credential keeps its place in vault order
+    private void index(String key, Credential credential) {
+        records.put(key, credential);
+        index.put(key, credential);
+        sortedIndex.put(key, credential);
+        dirtyKeys.add(key);
+        pendingKeys.add(key);
+    }
+
+    public Optional<Credential> removeCredential(String serviceName) {
+        String key = indexKey(serviceName);
+        long stamp = lock.writeLock();
+        try {
+            Credential removed = records.remove(key);
+            if (removed != null) {
+                index.remove(key);
+                sortedIndex.remove(key);
+                dirtyKeys.add(key);
+                pendingKeys.add(key);
+                view = null;
+            }
+            return Optional.ofNullable(removed);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // swaps in a freshly sealed record instead of editing the stored one, so a snapshot being
+    // written in the background keeps a consistent view
+    public boolean updateCredential(String serviceName, Credential updated) {
+        String key = indexKey(serviceName);
+        long stamp = lock.writeLock();
+        try {
+            Credential existing = index.get(key);
+            if (existing == null) return false;
+
+            Credential replacement = new Credential(existing.getServiceName(), updated.getUsername(), updated.getPassword(),
+                    updated.getAdditionalInfo() != null ? new LinkedHashMap<>(updated.getAdditionalInfo()) : new LinkedHashMap<>());
+            replacement.setModifiedAt(Instant.now());
+            put(key, replacement);
+            view = null;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // credentials updated in place must be flagged explicitly
+    public void markDirty(String serviceName) {
+        long stamp = lock.writeLock();
+        try {
+            dirtyKeys.add(indexKey(serviceName));
+            pendingKeys.add(indexKey(serviceName));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // the dirty and pending sets belong to the writer: only read them on the writer path
+    public Set<String> getDirtyKeys() {
+        return dirtyKeys;
+    }
+
+    public void clearDirty() {
+        long stamp = lock.writeLock();
+        try {
+            dirtyKeys.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Set<String> getPendingKeys() {
+        return pendingKeys;
+    }
+
+    public void clearPending() {
+        long stamp = lock.writeLock();
+        try {
+            pendingKeys.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // credentials are copied because updates change them in place
+    public Savepoint savepoint() {
+        long stamp = lock.readLock();
+        try {
+            List<Credential> copies = new ArrayList<>(records.size() + shadowed.size());
+            for (Credential credential : inOrder()) {
+                copies.add(new Credential(credential));
+            }
+            return new Savepoint(copies, new HashSet<>(dirtyKeys), new HashSet<>(pendingKeys));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void rollbackTo(Savepoint savepoint) {
+        long stamp = lock.writeLock();
+        try {
+            replaceAll(savepoint.credentials());
+            dirtyKeys.clear();
+            dirtyKeys.addAll(savepoint.dirtyKeys());
+            pendingKeys.clear();
+            pendingKeys.addAll(savepoint.pendingKeys());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public static String indexKey(String serviceName) {
+        return serviceName.toLowerCase(Locale.ROOT);
+    }
 }
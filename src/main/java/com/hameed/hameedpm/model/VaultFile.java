@@ -1,16 +1,25 @@
 package com.hameed.hameedpm.model;
 
+import java.util.ArrayList;
+import java.util.List;
 
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
-
-@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
 public class VaultFile {
+
+    // 0 = single blob (legacy), 2 = segmented: ciphertext holds only the vault header
+    public static final int FORMAT_SINGLE    = 0;
+    public static final int FORMAT_SEGMENTED = 2;
+
+    private int containerVersion;  // binary container version it was read from; 0 for JSON or a new file
+    private int formatVersion;
     private int iterations;
+    private long deriveMillis;  // derive time expected for iterations when they were chosen
     private byte[] salt;
     private byte[] iv;
     private byte[] ciphertext;
     private byte[] hash;
+    private long generation;
+    private int segmentCount;
+    private List<VaultSegment> segments = new ArrayList<>();
 
     public VaultFile() {}
 
@@ -22,9 +31,33 @@ public class VaultFile {
         this.hash = hash;
     }
 
+    // copy constructor, segment references are shared
+    public VaultFile(VaultFile other) {
+        this.containerVersion = other.containerVersion;
+        this.formatVersion = other.formatVersion;
+        this.iterations = other.iterations;
+        this.deriveMillis = other.deriveMillis;
+        this.salt = other.salt;
+        this.iv = other.iv;
+        this.ciphertext = other.ciphertext;
+        this.hash = other.hash;
+        this.generation = other.generation;
+        this.segmentCount = other.segmentCount;
+        this.segments = new ArrayList<>(other.segments);
+    }
+
+    public int getContainerVersion() { return containerVersion; }
+    public void setContainerVersion(int containerVersion) { this.containerVersion = containerVersion; }
+
+    public int getFormatVersion() { return formatVersion; }
+    public void setFormatVersion(int formatVersion) { this.formatVersion = formatVersion; }
+
     public int getIterations() { return iterations; }
     public void setIterations(int iterations) { this.iterations = iterations; }
 
+    public long getDeriveMillis() { return deriveMillis; }
+    public void setDeriveMillis(long deriveMillis) { this.deriveMillis = deriveMillis; }
+
     public byte[] getSalt() { return salt; }
     public void setSalt(byte[] salt) { this.salt = salt; }
 
@@ -36,4 +69,13 @@ public class VaultFile {
 
     public byte[] getHash() { return hash; }
     public void setHash(byte[] hash) { this.hash = hash; }
+
+    public long getGeneration() { return generation; }
+    public void setGeneration(long generation) { this.generation = generation; }
+
+    public int getSegmentCount() { return segmentCount; }
+    public void setSegmentCount(int segmentCount) { this.segmentCount = segmentCount; }
+
+    public List<VaultSegment> getSegments() { return segments; }
+    public void setSegments(List<VaultSegment> segments) { this.segments = segments != null ? segments : new ArrayList<>(); }
 }
@@ -0,0 +1,24 @@
+package com.hameed.hameedpm.model;
+
+public class VaultSegment {
+    private int index;
+    private byte[] iv;
+    private byte[] digest;
+
+    public VaultSegment() {}
+
+    public VaultSegment(int index, byte[] iv, byte[] digest) {
+        this.index = index;
+        this.iv = iv;
+        this.digest = digest;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public byte[] getIv() { return iv; }
+    public void setIv(byte[] iv) { this.iv = iv; }
+
+    public byte[] getDigest() { return digest; }
+    public void setDigest(byte[] digest) { this.digest = digest; }
+}
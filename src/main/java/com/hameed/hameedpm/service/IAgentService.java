@@ -0,0 +1,7 @@
+package com.hameed.hameedpm.service;
+
+import java.io.PrintWriter;
+
+public interface IAgentService {
+    void serve(PrintWriter out) throws Exception;
+}
@@ -0,0 +1,8 @@
+package com.hameed.hameedpm.service;
+
+import com.hameed.hameedpm.model.AuditSummary;
+
+public interface IAuditService {
+    // limit caps the listed entries, reuse groups and names per group; 0 lists all
+    AuditSummary audit(int limit) throws Exception;
+}
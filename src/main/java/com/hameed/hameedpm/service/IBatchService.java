@@ -0,0 +1,9 @@
+package com.hameed.hameedpm.service;
+
+import org.springframework.shell.core.command.CommandContext;
+
+import java.io.BufferedReader;
+
+public interface IBatchService {
+    void run(BufferedReader script, CommandContext ctx) throws Exception;
+}
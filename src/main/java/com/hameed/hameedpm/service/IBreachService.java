@@ -0,0 +1,13 @@
+package com.hameed.hameedpm.service;
+
+import com.hameed.hameedpm.model.BreachSummary;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+
+public interface IBreachService {
+    // corpus may be null to use hameed-pm.breach.corpus
+    BreachSummary check(String corpus) throws Exception;
+    // progress may be null
+    Path buildFilter(String corpus, PrintWriter progress) throws Exception;
+}
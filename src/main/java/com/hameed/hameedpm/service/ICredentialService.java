@@ -1,17 +1,26 @@
 package com.hameed.hameedpm.service;
 
+import com.hameed.hameedpm.enums.ConflictPolicy;
 import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.UpsertReport;
 import org.springframework.shell.core.command.CommandContext;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ICredentialService {
     void saveCredential(Credential credential) throws Exception;
     List<Credential> listCredentials();
     Optional<Credential> getCredentialByServiceName(String serviceName);
+    Credential openCredential(Credential credential);
+    List<Credential> searchCredentials(String query);
+    List<String> completeServiceName(String prefix, int limit);
     void updateCredential(String serviceName, Credential updatedCredential) throws Exception;
     void deleteCredential(String serviceName) throws Exception;
     void addAll(List<Credential> credentials, CommandContext ctx) throws Exception;
+    void addAll(Stream<Credential> credentials, CommandContext ctx) throws Exception;
+    UpsertReport upsertAll(Stream<Credential> credentials, ConflictPolicy policy, CommandContext ctx) throws Exception;
+    UpsertReport previewUpsert(Stream<Credential> credentials, ConflictPolicy policy, CommandContext ctx);
 
 }
@@ -1,11 +1,14 @@
 package com.hameed.hameedpm.service;
 
 import com.hameed.hameedpm.enums.TemplateType;
+import com.hameed.hameedpm.model.IngestionOptions;
+import com.hameed.hameedpm.model.IngestionSummary;
 import org.springframework.shell.core.command.CommandContext;
 
 import java.io.IOException;
 
 public interface IIngestionService {
     void ingest(String filePath, CommandContext ctx) throws Exception;
+    IngestionSummary ingest(String source, IngestionOptions options, CommandContext ctx) throws Exception;
     void getTemplate(TemplateType templateType);
 }
@@ -0,0 +1,8 @@
+package com.hameed.hameedpm.service;
+
+import com.hameed.hameedpm.model.RotationOptions;
+import com.hameed.hameedpm.model.RotationSummary;
+
+public interface IRotationService {
+    RotationSummary rotate(RotationOptions options) throws Exception;
+}
@@ -1,14 +1,39 @@
 package com.hameed.hameedpm.service;
 
 
+import com.hameed.hameedpm.model.KdfRewrap;
 import com.hameed.hameedpm.model.Vault;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
 
 public interface IVaultService {
+
+    // a change to the current vault, run by mutate on the single writer path
+    interface Mutation {
+        void apply(Vault vault) throws Exception;
+    }
+
+    void mutate(Mutation mutation) throws Exception;
     void persistVault() throws Exception;
+    void flush() throws Exception;
+    void lockVault() throws Exception;
+    void beginTransaction();
+    void commitTransaction() throws Exception;
+    void rollbackTransaction();
     Vault getCurrentVault();
     boolean isVaultUnlocked();
     boolean unlockVault(String vaultName, char[] password);
+    Duration getLastDeriveTime();
+    Optional<KdfRewrap> getLastRewrap();
+    int getKdfIterations();
     boolean vaultExists();
+    boolean vaultExists(String vaultName);
     void createEncryptedVault(String vaultName, char[] password) throws Exception;
+    String getCurrentVaultName();
+    List<String> getOpenVaults();
+    boolean switchVault(String vaultName) throws Exception;
+    void closeVault(String vaultName) throws Exception;
 }
@@ -4,7 +4,21 @@ import com.hameed.hameedpm.model.Credential;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
+// An import format. Implementations are found through META-INF/services and must have a public
+// no-argument constructor; the first one that accepts a file reads it.
 public interface Parser {
     List<Credential> parse(Path path) throws Exception;
+
+    // lazily parsed records; the caller must close the stream to release the file
+    default Stream<Credential> stream(Path path) throws Exception {
+        return parse(path).stream();
+    }
+
+    // short name shown by load
+    String getName();
+
+    // head is the start of the file as text, for formats that share an extension
+    boolean accepts(String fileName, String head);
 }
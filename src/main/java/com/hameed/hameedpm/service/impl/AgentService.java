@@ -0,0 +1,255 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.exception.ResourceNotFoundException;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.IAgentService;
+import com.hameed.hameedpm.service.ICredentialService;
+import com.hameed.hameedpm.util.AgentClient;
+import com.hameed.hameedpm.util.AgentProtocol;
+import com.hameed.hameedpm.util.VaultFileUtil;
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the unlocked vault of this process available to later CLI invocations over a Unix domain
+// socket. Only the owning user can connect: the socket is bound inside a directory only the owner
+// can enter, and the peer's uid is checked on every connection. The agent refuses to start where
+// neither can be guaranteed. It stops after idleTimeout without requests.
+@Service
+public class AgentService implements IAgentService {
+
+    private final ICredentialService credentialService;
+    private final Duration idleTimeout;
+
+    // connections are handled on virtual threads: lookups run side by side, and changes are
+    // serialized by the vault service's single writer
+    private volatile long lastActivity;
+
+    public AgentService(ICredentialService credentialService,
+                        @Value("${hameed-pm.agent.idle-timeout:15m}") Duration idleTimeout) {
+        this.credentialService = credentialService;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public void serve(PrintWriter out) throws Exception {
+        Path socketPath = VaultFileUtil.getAgentSocketPath();
+        if (AgentClient.isAgentRunning()) {
+            throw new IllegalStateException("An agent is already listening on " + socketPath);
+        }
+        UserPrincipal owner = currentUser();
+        requirePeerCredentials();
+        createPrivateDirectory(socketPath.getParent(), owner);
+        Files.deleteIfExists(socketPath);  // left behind by an agent that was killed
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            VaultFileUtil.restrictToOwner(socketPath);
+
+            // PT15M -> 15m
+            out.println("Agent listening on " + socketPath + ", stops after "
+                    + idleTimeout.toString().substring(2).toLowerCase() + " without requests. Press Ctrl+C to stop it now.");
+            out.flush();
+
+            lastActivity = System.nanoTime();
+            Thread watchdog = Thread.ofVirtual().name("agent-idle-watchdog").start(() -> closeWhenIdle(server));
+            try (ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor()) {
+                while (true) {
+                    SocketChannel client;
+                    try {
+                        client = server.accept();
+                    } catch (ClosedChannelException e) {
+                        break;  // idle timeout or interrupted
+                    }
+                    lastActivity = System.nanoTime();
+                    handlers.submit(() -> handle(client, owner));
+                }
+            } finally {
+                watchdog.interrupt();
+                Files.deleteIfExists(socketPath);
+            }
+        }
+        out.println("Agent stopped.");
+        out.flush();
+    }
+
+    private void closeWhenIdle(ServerSocketChannel server) {
+        try {
+            while (true) {
+                long idleNanos = System.nanoTime() - lastActivity;
+                long remaining = idleTimeout.toNanos() - idleNanos;
+                if (remaining <= 0) break;
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+            server.close();
+        } catch (InterruptedException | IOException e) {
+            // agent is already shutting down
+        }
+    }
+
+    private void handle(SocketChannel client, UserPrincipal owner) {
+        try (client) {
+            if (!isOwner(client, owner)) return;
+
+            DataInputStream  in  = new DataInputStream(Channels.newInputStream(client));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+            AgentProtocol.Request request = AgentProtocol.readRequest(in);
+
+            AgentProtocol.writeResponse(out, dispatch(request));
+        } catch (IOException e) {
+            // the client went away or sent garbage; nothing to answer
+        } finally {
+            lastActivity = System.nanoTime();
+        }
+    }
+
+    private AgentProtocol.Response dispatch(AgentProtocol.Request request) {
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        List<String> args = request.args();
+        try {
+            switch (request.command()) {
+                case "get" -> {
+                    String serviceName = requireServiceName(args);
+                    Credential cred = credentialService.getCredentialByServiceName(serviceName)
+                            .orElseThrow(() -> new ResourceNotFoundException(
+                                    "Credential with this service name was not found: " + serviceName));
+                    printCredential(out, cred);
+                }
+                case "list" -> {
+                    boolean detailed = args.contains("-d") || args.contains("--detailed");
+                    List<Credential> credentials = credentialService.listCredentials();
+                    for (int i = 0; i < credentials.size(); i++) {
+                        if (detailed) {
+                            printCredential(out, credentialService.openCredential(credentials.get(i)));
+                        } else {
+                            out.println((i + 1) + ". " + credentials.get(i).getServiceName());
+                        }
+                    }
+                }
+                case "search" -> {
+                    if (args.isEmpty() || args.get(0).isBlank()) {
+                        throw new IllegalArgumentException("Search text is required. Usage: search <text>");
+                    }
+                    List<Credential> matches = credentialService.searchCredentials(args.get(0));
+                    if (matches.isEmpty()) {
+                        out.println("No credentials match '" + args.get(0) + "'.");
+                    }
+                    for (int i = 0; i < matches.size(); i++) {
+                        out.println((i + 1) + ". " + matches.get(i).getServiceName());
+                    }
+                }
+                case "add" -> {
+                    // service, username, password, then key/value pairs
+                    if (args.size() < 3 || args.size() % 2 == 0) {
+                        throw new IllegalArgumentException("Usage: add <service-name> <username> [key=value]...");
+                    }
+                    Map<String, String> additionalInfo = new LinkedHashMap<>();
+                    for (int i = 3; i < args.size(); i += 2) {
+                        additionalInfo.put(args.get(i), args.get(i + 1));
+                    }
+                    credentialService.saveCredential(new Credential(args.get(0), args.get(1), args.get(2), additionalInfo));
+                    out.println("Credential for '" + args.get(0) + "' saved successfully.");
+                }
+                default -> throw new IllegalArgumentException("Command not supported by the agent: " + request.command());
+            }
+            out.flush();
+            return new AgentProtocol.Response(AgentProtocol.STATUS_OK, buffer.toString());
+        } catch (IllegalArgumentException e) {
+            return new AgentProtocol.Response(AgentProtocol.STATUS_INVALID, e.getMessage() + System.lineSeparator());
+        } catch (ResourceNotFoundException e) {
+            return new AgentProtocol.Response(AgentProtocol.STATUS_NOT_FOUND, e.getMessage() + System.lineSeparator());
+        } catch (Exception e) {
+            return new AgentProtocol.Response(AgentProtocol.STATUS_ERROR, e.getMessage() + System.lineSeparator());
+        }
+    }
+
+    private String requireServiceName(List<String> args) {
+        if (args.isEmpty() || args.get(0).isBlank()) {
+            throw new IllegalArgumentException("Service name is required. Usage: <command> <service-name>");
+        }
+        return args.get(0);
+    }
+
+    private void printCredential(PrintWriter out, Credential cred) {
+        out.printf(" username: %s%n password: %s%n", cred.getUsername(), cred.getPassword());
+        cred.getAdditionalInfo().forEach((key, value) -> out.printf(" %s: %s%n", key, value));
+    }
+
+    // a peer whose user cannot be established is turned away
+    private boolean isOwner(SocketChannel client, UserPrincipal owner) {
+        try {
+            UnixDomainPrincipal peer = client.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            return peer != null && owner.equals(peer.user());
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private UserPrincipal currentUser() {
+        try {
+            return FileSystems.getDefault().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+        } catch (IOException | UnsupportedOperationException e) {
+            throw new IllegalStateException("The agent needs to know the current user to restrict the socket to it: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private void requirePeerCredentials() throws IOException {
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            if (!probe.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+                throw new IllegalStateException("The agent is not supported on this platform: "
+                        + "it cannot tell which user is connecting to the socket.");
+            }
+        }
+    }
+
+    // the socket's directory, rwx------ and owned by the current user; created that way rather than
+    // restricted afterwards, so there is no moment in which another user could enter it
+    private void createPrivateDirectory(Path directory, UserPrincipal owner) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            throw new IllegalStateException("The agent needs POSIX file permissions to restrict its socket.");
+        }
+        Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(directory.getParent());
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)
+                || !owner.equals(Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS))) {
+            throw new IllegalStateException(directory + " is not a directory owned by you; remove it and start the agent again.");
+        }
+        if (!Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS).equals(ownerOnly)) {
+            Files.setPosixFilePermissions(directory, ownerOnly);
+        }
+    }
+}
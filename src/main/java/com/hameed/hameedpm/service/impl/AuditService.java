@@ -0,0 +1,172 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.enums.PasswordIssue;
+import com.hameed.hameedpm.model.AuditSummary;
+import com.hameed.hameedpm.model.AuditSummary.Entry;
+import com.hameed.hameedpm.model.AuditSummary.ReuseGroup;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.Vault;
+import com.hameed.hameedpm.service.IAuditService;
+import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.CryptoUtil;
+import com.hameed.hameedpm.util.Metrics;
+import com.hameed.hameedpm.util.PasswordStrength;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Scores every password in the vault and finds the ones used more than once. Records are opened and
+// scored in parallel on the common fork/join pool, one slice of the snapshot per task. Reuse is found
+// by grouping on an HMAC of each password under a key that lives only for this audit, so no map from
+// plaintext is built and the hashes are worthless once the audit returns.
+@Service
+public class AuditService implements IAuditService {
+
+    // credentials one task opens and scores before it stops splitting
+    private static final int SLICE_SIZE = 512;
+    private static final int AUDIT_KEY_LENGTH = 32;
+    // a reused password is at most this strong, however long it is
+    private static final int REUSED_CAP = 20;
+    // scores below this count as weak
+    private static final int WEAK_SCORE = 50;
+
+    private final IVaultService vaultService;
+
+    public AuditService(IVaultService vaultService) {
+        this.vaultService = vaultService;
+    }
+
+    // what one credential scored; passwordHash is null for an empty password, which is never counted as reuse
+    private record Finding(String serviceName, String username, ByteBuffer passwordHash, PasswordStrength.Result strength) {}
+
+    @Override
+    public AuditSummary audit(int limit) throws Exception {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        Metrics.Sample sample = Metrics.start();
+        long start = System.nanoTime();
+        Vault vault = vaultService.getCurrentVault();
+        List<Credential> credentials = vault.getCredentials();
+        Finding[] findings = new Finding[credentials.size()];
+        byte[] auditKey = CryptoUtil.generateRandomBytes(AUDIT_KEY_LENGTH);
+        try {
+            ForkJoinPool.commonPool().invoke(new Evaluate(vault, credentials, findings, auditKey, 0, findings.length));
+        } finally {
+            Arrays.fill(auditKey, (byte) 0);
+        }
+
+        // indexes of the credentials sharing each password, in vault order
+        Map<ByteBuffer, List<Integer>> byHash = new HashMap<>();
+        for (int i = 0; i < findings.length; i++) {
+            if (findings[i].passwordHash() != null) {
+                byHash.computeIfAbsent(findings[i].passwordHash(), hash -> new ArrayList<>(1)).add(i);
+            }
+        }
+        int[] reuseCounts = new int[findings.length];
+        Arrays.fill(reuseCounts, 1);
+        List<List<Integer>> groups = new ArrayList<>();
+        for (List<Integer> group : byHash.values()) {
+            if (group.size() < 2) continue;
+            groups.add(group);
+            for (int i : group) reuseCounts[i] = group.size();
+        }
+
+        List<Entry> entries = new ArrayList<>(findings.length);
+        Map<PasswordIssue, Integer> issueCounts = new EnumMap<>(PasswordIssue.class);
+        int weak = 0;
+        int reused = 0;
+        for (int i = 0; i < findings.length; i++) {
+            Finding finding = findings[i];
+            Set<PasswordIssue> issues = EnumSet.noneOf(PasswordIssue.class);
+            issues.addAll(finding.strength().issues());
+            int score = finding.strength().score();
+            if (reuseCounts[i] > 1) {
+                issues.add(PasswordIssue.REUSED);
+                score = Math.min(score, REUSED_CAP);
+                reused++;
+            }
+            if (score < WEAK_SCORE) weak++;
+            issues.forEach(issue -> issueCounts.merge(issue, 1, Integer::sum));
+            entries.add(new Entry(finding.serviceName(), finding.username(), score,
+                    finding.strength().entropyBits(), Collections.unmodifiableSet(issues), reuseCounts[i]));
+        }
+        // riskiest first: lowest score, then most widely reused, then by name so the order is stable
+        entries.sort(Comparator.comparingInt(Entry::score)
+                .thenComparing(Comparator.comparingInt(Entry::reuseCount).reversed())
+                .thenComparing(entry -> Vault.indexKey(entry.serviceName())));
+        groups.sort(Comparator.comparingInt((List<Integer> group) -> group.size()).reversed()
+                .thenComparingInt(group -> group.get(0)));
+
+        long listed = limit > 0 ? limit : Long.MAX_VALUE;
+        List<ReuseGroup> reuseGroups = groups.stream()
+                .limit(listed)
+                .map(group -> new ReuseGroup(group.size(),
+                        group.stream().limit(listed).map(i -> findings[i].serviceName()).toList()))
+                .toList();
+        AuditSummary summary = new AuditSummary(findings.length, weak, reused, issueCounts,
+                limit > 0 && entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : entries,
+                groups.size(), reuseGroups, System.nanoTime() - start);
+        Metrics.stop("audit", sample);
+        return summary;
+    }
+
+    // opens and scores credentials[from, to) into findings, splitting while the slice is large
+    private static final class Evaluate extends RecursiveAction {
+        private final Vault vault;
+        private final List<Credential> credentials;
+        private final Finding[] findings;
+        private final byte[] auditKey;
+        private final int from;
+        private final int to;
+
+        Evaluate(Vault vault, List<Credential> credentials, Finding[] findings, byte[] auditKey, int from, int to) {
+            this.vault = vault;
+            this.credentials = credentials;
+            this.findings = findings;
+            this.auditKey = auditKey;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SLICE_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Evaluate(vault, credentials, findings, auditKey, from, middle),
+                        new Evaluate(vault, credentials, findings, auditKey, middle, to));
+                return;
+            }
+            Mac mac;
+            try {
+                mac = CryptoUtil.hmac(auditKey);
+            } catch (Exception e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+            for (int i = from; i < to; i++) {
+                Credential credential = vault.open(credentials.get(i));
+                String password = credential.getPassword();
+                findings[i] = new Finding(credential.getServiceName(), credential.getUsername(),
+                        password != null && !password.isEmpty() ? hash(mac, password) : null,
+                        PasswordStrength.evaluate(password, credential.getServiceName(), credential.getUsername()));
+            }
+        }
+
+        private static ByteBuffer hash(Mac mac, String password) {
+            ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+            try {
+                mac.update(encoded);
+                return ByteBuffer.wrap(mac.doFinal());
+            } finally {
+                encoded.clear();
+                while (encoded.hasRemaining()) encoded.put((byte) 0);
+            }
+        }
+    }
+}
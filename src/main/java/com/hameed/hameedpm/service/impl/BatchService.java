@@ -0,0 +1,181 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.enums.ConflictPolicy;
+import com.hameed.hameedpm.exception.CommitOutcomeUnknownException;
+import com.hameed.hameedpm.exception.ResourceNotFoundException;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.IngestionOptions;
+import com.hameed.hameedpm.service.IBatchService;
+import com.hameed.hameedpm.service.ICredentialService;
+import com.hameed.hameedpm.service.IIngestionService;
+import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.IngestionReport;
+import com.hameed.hameedpm.util.StringUtil;
+import org.springframework.shell.core.command.CommandContext;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs a script of add/update/delete/load commands against the unlocked vault as one transaction:
+// the vault is saved once after the last command, and nothing is saved if any command fails.
+@Service
+public class BatchService implements IBatchService {
+
+    private static final String INFO_PREFIX = "info.";
+
+    private final IVaultService vaultService;
+    private final ICredentialService credentialService;
+    private final IIngestionService ingestionService;
+
+    public BatchService(IVaultService vaultService,
+                        ICredentialService credentialService,
+                        IIngestionService ingestionService) {
+        this.vaultService = vaultService;
+        this.credentialService = credentialService;
+        this.ingestionService = ingestionService;
+    }
+
+    @Override
+    public void run(BufferedReader script, CommandContext ctx) throws Exception {
+        PrintWriter out = ctx.outputWriter();
+        long batchStart = System.nanoTime();
+        int executed = 0;
+        int lineNumber = 0;
+
+        vaultService.beginTransaction();
+        try {
+            String line;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                long start = System.nanoTime();
+                List<String> words = List.of(line.split("\\s+", 2)[0]);  // until the line is parsed
+                try {
+                    words = StringUtil.splitArguments(line);
+                    execute(words, ctx);
+                } catch (Exception e) {
+                    out.printf("%5d  %-40s FAILED %s%n", lineNumber, describe(words), e.getMessage());
+                    out.flush();
+                    throw new IllegalStateException("Batch stopped at line " + lineNumber + ", rolled back "
+                            + executed + " command(s). The vault was not changed.", e);
+                }
+                executed++;
+                out.printf("%5d  %-40s ok     %8.2f ms%n", lineNumber, describe(words), millisSince(start));
+                out.flush();
+            }
+        } catch (Exception e) {
+            vaultService.rollbackTransaction();
+            throw e;
+        }
+
+        long commitStart = System.nanoTime();
+        try {
+            vaultService.commitTransaction();
+        } catch (CommitOutcomeUnknownException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Saving the batch failed (" + e.getMessage() + "), rolled back "
+                    + executed + " command(s). The vault was not changed.", e);
+        }
+        out.printf("Committed %d command(s) with one save in %.2f ms (total %.2f ms).%n",
+                executed, millisSince(commitStart), millisSince(batchStart));
+        out.flush();
+    }
+
+    private void execute(List<String> words, CommandContext ctx) throws Exception {
+        if (words.isEmpty()) return;
+        List<String> args = words.subList(1, words.size());
+        switch (words.get(0)) {
+            // add <service-name> <username> <password> [key=value]...
+            case "add" -> {
+                if (args.size() < 3) {
+                    throw new IllegalArgumentException("Usage: add <service-name> <username> <password> [key=value]...");
+                }
+                Map<String, String> additionalInfo = new LinkedHashMap<>();
+                for (String assignment : args.subList(3, args.size())) {
+                    String[] pair = splitAssignment(assignment);
+                    additionalInfo.put(pair[0], pair[1]);
+                }
+                credentialService.saveCredential(new Credential(args.get(0), args.get(1), args.get(2), additionalInfo));
+            }
+            // update <service-name> [username=<value>] [password=<value>] [info.<key>=<value>]...
+            // an empty info value removes the key
+            case "update" -> {
+                if (args.size() < 2) {
+                    throw new IllegalArgumentException(
+                            "Usage: update <service-name> [username=<value>] [password=<value>] [info.<key>=<value>]...");
+                }
+                String serviceName = args.get(0);
+                Credential updated = new Credential(credentialService.getCredentialByServiceName(serviceName)
+                        .orElseThrow(() -> new ResourceNotFoundException(
+                                "Credential with this service name was not found: " + serviceName)));
+                if (updated.getAdditionalInfo() == null) updated.setAdditionalInfo(new LinkedHashMap<>());
+                for (String assignment : args.subList(1, args.size())) {
+                    applyUpdate(updated, splitAssignment(assignment));
+                }
+                credentialService.updateCredential(serviceName, updated);
+            }
+            // delete <service-name>
+            case "delete" -> {
+                if (args.size() != 1) {
+                    throw new IllegalArgumentException("Usage: delete <service-name>");
+                }
+                credentialService.deleteCredential(args.get(0));
+            }
+            // load <file|directory|glob> [--on-conflict <policy>]
+            case "load" -> {
+                boolean withPolicy = args.size() == 3 && args.get(1).equals("--on-conflict");
+                if (args.size() != 1 && !withPolicy) {
+                    throw new IllegalArgumentException("Usage: load <file|directory|glob> [--on-conflict <policy>]");
+                }
+                ConflictPolicy policy = withPolicy ? ConflictPolicy.fromOptionValue(args.get(2)) : ConflictPolicy.SKIP;
+                // no progress line inside the batch table
+                IngestionReport.print(ingestionService.ingest(args.get(0), new IngestionOptions(policy, false, false), ctx),
+                        ctx.outputWriter());
+            }
+            default -> throw new IllegalArgumentException(
+                    "Command not supported in batch mode: " + words.get(0) + " (use add, update, delete or load)");
+        }
+    }
+
+    private void applyUpdate(Credential credential, String[] assignment) {
+        String field = assignment[0];
+        String value = assignment[1];
+        if (field.equals("username") || field.equals("password")) {
+            if (value.isBlank()) {
+                throw new IllegalArgumentException("The updated " + field + " cannot be empty.");
+            }
+            if (field.equals("username")) credential.setUsername(value);
+            else credential.setPassword(value);
+        } else if (field.startsWith(INFO_PREFIX) && field.length() > INFO_PREFIX.length()) {
+            String key = field.substring(INFO_PREFIX.length());
+            if (value.isEmpty()) credential.getAdditionalInfo().remove(key);
+            else credential.getAdditionalInfo().put(key, value);
+        } else {
+            throw new IllegalArgumentException("Unknown field '" + field + "', expected username, password or info.<key>");
+        }
+    }
+
+    private String[] splitAssignment(String assignment) {
+        int separator = assignment.indexOf('=');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Expected key=value but got: " + assignment);
+        }
+        return new String[] { assignment.substring(0, separator), assignment.substring(separator + 1) };
+    }
+
+    // command and target only, passwords never reach the output
+    private String describe(List<String> words) {
+        return words.size() > 1 ? words.get(0) + " " + words.get(1) : String.join(" ", words);
+    }
+
+    private double millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,209 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.Parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Unencrypted Bitwarden JSON export. The token stream is walked one item at a time, so only the
+// item being read is in memory. Login items become credentials: name as service name, login
+// username and password, and notes, URIs, TOTP and custom fields as additional info.
+// Cards, identities and secure notes have no password and are skipped.
+public class BitwardenJsonParserImpl implements Parser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final int LOGIN_ITEM = 1;
+
+    @Override
+    public String getName() {
+        return "bitwarden-json";
+    }
+
+    @Override
+    public boolean accepts(String fileName, String head) {
+        return fileName.endsWith(".json") && (head.contains("\"encrypted\"") || head.contains("\"items\""));
+    }
+
+    @Override
+    public List<Credential> parse(Path path) throws Exception {
+        try (Stream<Credential> credentials = stream(path)) {
+            return credentials.toList();
+        } catch (UncheckedIOException e) {
+            throw new Exception("Failed to parse Bitwarden export: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public Stream<Credential> stream(Path path) throws Exception {
+        JsonParser parser = null;
+        try {
+            parser = FACTORY.createParser(path.toFile());
+            seekItems(parser);
+        } catch (IOException e) {
+            if (parser != null) parser.close();
+            throw new Exception("Failed to parse Bitwarden export: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            if (parser != null) parser.close();
+            throw e;
+        }
+        JsonParser items = parser;
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<Credential>(
+                        Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                    @Override
+                    public boolean tryAdvance(Consumer<? super Credential> action) {
+                        try {
+                            while (items.nextToken() == JsonToken.START_OBJECT) {
+                                Credential credential = readItem(items);
+                                if (credential != null) {
+                                    action.accept(credential);
+                                    return true;
+                                }
+                            }
+                            return false;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }, false)
+                .onClose(() -> {
+                    try {
+                        items.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // leaves the parser on the start of the items array
+    private void seekItems(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Not a Bitwarden export: expected a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("encrypted") && value == JsonToken.VALUE_TRUE) {
+                throw new IllegalArgumentException("Encrypted Bitwarden exports cannot be loaded; export as unencrypted JSON");
+            }
+            if (field.equals("items") && value == JsonToken.START_ARRAY) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalArgumentException("Not a Bitwarden export: no items array");
+    }
+
+    // null for items that are not logins
+    private Credential readItem(JsonParser parser) throws IOException {
+        Credential credential = new Credential();
+        Map<String, String> additionalInfo = new LinkedHashMap<>();
+        int type = LOGIN_ITEM;
+        String notes = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type"         -> type = parser.getValueAsInt(LOGIN_ITEM);
+                case "name"         -> credential.setServiceName(text(parser));
+                case "notes"        -> notes = text(parser);
+                case "revisionDate" -> credential.setModifiedAt(instant(text(parser)));
+                case "login"        -> readLogin(parser, value, credential, additionalInfo);
+                case "fields"       -> readFields(parser, value, additionalInfo);
+                default -> parser.skipChildren();
+            }
+        }
+        if (type != LOGIN_ITEM) return null;
+        if (notes != null && !notes.isEmpty()) additionalInfo.putIfAbsent("notes", notes);
+        credential.setAdditionalInfo(additionalInfo);
+        return credential;
+    }
+
+    private void readLogin(JsonParser parser, JsonToken value, Credential credential,
+                           Map<String, String> additionalInfo) throws IOException {
+        if (value != JsonToken.START_OBJECT) return;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            switch (field) {
+                case "username" -> credential.setUsername(text(parser));
+                case "password" -> credential.setPassword(text(parser));
+                case "totp" -> {
+                    String totp = text(parser);
+                    if (totp != null && !totp.isEmpty()) additionalInfo.put("totp", totp);
+                }
+                case "uris" -> readUris(parser, fieldValue, additionalInfo);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    // the first URI is "url", further ones "url2", "url3", ...
+    private void readUris(JsonParser parser, JsonToken value, Map<String, String> additionalInfo) throws IOException {
+        if (value != JsonToken.START_ARRAY) return;
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (field.equals("uri") && parser.currentToken() == JsonToken.VALUE_STRING) {
+                    count++;
+                    additionalInfo.put(count == 1 ? "url" : "url" + count, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readFields(JsonParser parser, JsonToken value, Map<String, String> additionalInfo) throws IOException {
+        if (value != JsonToken.START_ARRAY) return;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String name = null;
+            String fieldValue = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name"  -> name = text(parser);
+                    case "value" -> fieldValue = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (name != null && !name.isBlank()) additionalInfo.put(name.trim(), fieldValue != null ? fieldValue : "");
+        }
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private static Instant instant(String text) {
+        if (text == null) return null;
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.model.BreachSummary;
+import com.hameed.hameedpm.model.BreachSummary.FilterStatus;
+import com.hameed.hameedpm.model.BreachSummary.Match;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.IBreachService;
+import com.hameed.hameedpm.service.ICredentialService;
+import com.hameed.hameedpm.util.BreachCorpus;
+import com.hameed.hameedpm.util.BreachFilter;
+import com.hameed.hameedpm.util.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.*;
+
+// Checks every password in the vault against a local breach corpus; nothing leaves the machine.
+// The passwords are hashed, sorted and deduplicated first, so the corpus is walked once from start to
+// end and each lookup only searches what is past the previous one. With a current filter sidecar,
+// hashes it rules out never reach the corpus.
+@Service
+public class BreachService implements IBreachService {
+
+    private final ICredentialService credentialService;
+    private final String defaultCorpus;
+
+    public BreachService(ICredentialService credentialService,
+                         @Value("${hameed-pm.breach.corpus:}") String defaultCorpus) {
+        this.credentialService = credentialService;
+        this.defaultCorpus = defaultCorpus;
+    }
+
+    // one credential's password hash; credentials sharing a password end up next to each other
+    private record Probe(byte[] sha1, int credential) {}
+
+    @Override
+    public BreachSummary check(String corpus) throws Exception {
+        Path corpusPath = resolve(corpus);
+        Metrics.Sample sample = Metrics.start();
+        long start = System.nanoTime();
+        List<Credential> credentials = credentialService.listCredentials();
+        List<Probe> probes = new ArrayList<>(credentials.size());
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        for (int i = 0; i < credentials.size(); i++) {
+            String password = credentialService.openCredential(credentials.get(i)).getPassword();
+            if (password == null || password.isEmpty()) continue;
+            byte[] encoded = password.getBytes(StandardCharsets.UTF_8);
+            probes.add(new Probe(sha1.digest(encoded), i));
+            Arrays.fill(encoded, (byte) 0);
+        }
+        probes.sort((a, b) -> Arrays.compareUnsigned(a.sha1(), b.sha1()));
+
+        List<Match> matches = new ArrayList<>();
+        int distinct = 0;
+        int filtered = 0;
+        int searched = 0;
+        FilterStatus filterStatus = FilterStatus.NONE;
+        try (BreachCorpus breaches = BreachCorpus.open(corpusPath);
+             BreachFilter filter = openFilter(breaches)) {
+            if (filter != null) {
+                filterStatus = filter.matches(breaches) ? FilterStatus.USED : FilterStatus.STALE;
+            }
+            long[] cursor = new long[1];
+            for (int i = 0; i < probes.size(); ) {
+                byte[] hash = probes.get(i).sha1();
+                int end = i + 1;
+                while (end < probes.size() && Arrays.equals(probes.get(end).sha1(), hash)) end++;
+                distinct++;
+
+                long count = 0;
+                if (filterStatus == FilterStatus.USED && !filter.mightContain(hash)) {
+                    filtered++;
+                } else {
+                    searched++;
+                    count = breaches.lookup(hash, cursor);
+                }
+                for (; i < end; i++) {
+                    if (count > 0) {
+                        Credential credential = credentials.get(probes.get(i).credential());
+                        matches.add(new Match(credential.getServiceName(), credential.getUsername(), count));
+                    }
+                    Arrays.fill(probes.get(i).sha1(), (byte) 0);
+                }
+            }
+            matches.sort(Comparator.comparingLong(Match::count).reversed()
+                    .thenComparing(match -> match.serviceName().toLowerCase(Locale.ROOT)));
+            BreachSummary summary = new BreachSummary(corpusPath.toString(), breaches.size(), filterStatus,
+                    credentials.size(), distinct, filtered, searched, matches, System.nanoTime() - start);
+            Metrics.stop("breach-check", sample);
+            return summary;
+        }
+    }
+
+    @Override
+    public Path buildFilter(String corpus, PrintWriter progress) throws Exception {
+        Path corpusPath = resolve(corpus);
+        Path target = BreachFilter.sidecarOf(corpusPath);
+        Metrics.Sample sample = Metrics.start();
+        try (BreachCorpus breaches = BreachCorpus.open(corpusPath)) {
+            BreachFilter.build(breaches, target, progress);
+        }
+        Metrics.stop("breach-check.build-filter", sample);
+        return target;
+    }
+
+    private Path resolve(String corpus) {
+        String path = corpus != null && !corpus.isBlank() ? corpus : defaultCorpus;
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Breach corpus is required: pass the path of a sorted SHA-1 "
+                    + "password file or set hameed-pm.breach.corpus");
+        }
+        return Paths.get(path);
+    }
+
+    // the sidecar next to the corpus, if one has been built
+    private static BreachFilter openFilter(BreachCorpus corpus) throws Exception {
+        Path sidecar = BreachFilter.sidecarOf(corpus.getPath());
+        return Files.isRegularFile(sidecar) ? BreachFilter.open(sidecar) : null;
+    }
+}
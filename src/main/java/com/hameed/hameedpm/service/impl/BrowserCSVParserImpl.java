@@ -0,0 +1,167 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.Parser;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Password exports from browsers: Chrome and Edge (name,url,username,password,note), Firefox
+// (url,username,password,httpRealm,...,timePasswordChanged) and Safari (Title,URL,Username,...).
+// Columns are found by header name in any order. Without a name column the service name is the
+// host of the URL. Other non-empty columns are kept as additional info, except Firefox's bookkeeping.
+public class BrowserCSVParserImpl implements Parser {
+
+    private static final Set<String> NAME_COLUMNS = Set.of("name", "title");
+    private static final Set<String> NOTE_COLUMNS = Set.of("note", "notes");
+    private static final Set<String> IGNORED_COLUMNS = Set.of("guid", "timecreated", "timelastused", "timepasswordchanged");
+    private static final String FIREFOX_CHANGED_COLUMN = "timepasswordchanged";
+
+    // column positions, -1 when the export has no such column
+    private record Columns(int name, int url, int username, int password, int note, int changed,
+                           List<String> otherNames, int[] others) {}
+
+    @Override
+    public String getName() {
+        return "browser-csv";
+    }
+
+    @Override
+    public boolean accepts(String fileName, String head) {
+        if (!fileName.endsWith(".csv")) return false;
+        int end = head.indexOf('\n');
+        List<String> header = headerNames(end >= 0 ? head.substring(0, end) : head);
+        return header.contains("url") && header.contains("username") && header.contains("password");
+    }
+
+    @Override
+    public List<Credential> parse(Path path) throws Exception {
+        try (Stream<Credential> credentials = stream(path)) {
+            return credentials.toList();
+        } catch (UncheckedIOException e) {
+            throw new Exception("Failed to parse browser CSV file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public Stream<Credential> stream(Path path) throws Exception {
+        BufferedReader reader = null;
+        try {
+            reader = Files.newBufferedReader(path);
+            skipByteOrderMark(reader);
+            CSVParser csvParser = CSVFormat.DEFAULT
+                    .builder()
+                    .setHeader()
+                    .setSkipHeaderRecord(true)
+                    .setTrim(true)
+                    .build().parse(reader);
+            Columns columns = columns(csvParser.getHeaderNames());
+            // records are pulled one at a time from the reader as the stream is consumed
+            return csvParser.stream()
+                    .map(record -> getCredential(record, columns))
+                    .onClose(() -> {
+                        try {
+                            csvParser.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (IOException e) {
+            if (reader != null) reader.close();
+            throw new Exception("Failed to parse browser CSV file: " + e.getMessage(), e);
+        }
+    }
+
+    private Credential getCredential(CSVRecord csvRecord, Columns columns) {
+        Credential credential = new Credential();
+        String url = value(csvRecord, columns.url());
+        String name = value(csvRecord, columns.name());
+        credential.setServiceName(name != null && !name.isEmpty() ? name : host(url));
+        credential.setUsername(value(csvRecord, columns.username()));
+        credential.setPassword(value(csvRecord, columns.password()));
+        String changed = value(csvRecord, columns.changed());
+        if (changed != null && !changed.isEmpty()) {
+            try {
+                credential.setModifiedAt(Instant.ofEpochMilli(Long.parseLong(changed)));
+            } catch (NumberFormatException e) {
+                // left undated
+            }
+        }
+
+        Map<String, String> additionalInfo = new LinkedHashMap<>();
+        if (url != null && !url.isEmpty()) additionalInfo.put("url", url);
+        String note = value(csvRecord, columns.note());
+        if (note != null && !note.isEmpty()) additionalInfo.put("notes", note);
+        for (int i = 0; i < columns.others().length; i++) {
+            String value = value(csvRecord, columns.others()[i]);
+            if (value != null && !value.isEmpty()) additionalInfo.put(columns.otherNames().get(i), value);
+        }
+        credential.setAdditionalInfo(additionalInfo);
+        return credential;
+    }
+
+    private static Columns columns(List<String> header) {
+        int name = -1, url = -1, username = -1, password = -1, note = -1, changed = -1;
+        List<String> otherNames = new ArrayList<>();
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (NAME_COLUMNS.contains(column) && name < 0) name = i;
+            else if (column.equals("url") && url < 0) url = i;
+            else if (column.equals("username") && username < 0) username = i;
+            else if (column.equals("password") && password < 0) password = i;
+            else if (NOTE_COLUMNS.contains(column) && note < 0) note = i;
+            else if (column.equals(FIREFOX_CHANGED_COLUMN)) changed = i;
+            else if (!column.isEmpty() && !IGNORED_COLUMNS.contains(column)) {
+                otherNames.add(header.get(i).trim());
+                others.add(i);
+            }
+        }
+        return new Columns(name, url, username, password, note, changed,
+                otherNames, others.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // short rows are left for validation instead of failing the whole file
+    private static String value(CSVRecord csvRecord, int column) {
+        return column >= 0 && csvRecord.isSet(column) ? csvRecord.get(column) : null;
+    }
+
+    private static String host(String url) {
+        if (url == null || url.isEmpty()) return "";
+        try {
+            String host = URI.create(url).getHost();
+            if (host != null) return host;
+        } catch (IllegalArgumentException e) {
+            // not a URI (android:// entries and the like are kept as they are)
+        }
+        return url;
+    }
+
+    private static List<String> headerNames(String line) {
+        List<String> names = new ArrayList<>();
+        for (String column : line.split(",")) {
+            names.add(column.trim().replace("\"", "").toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    private static void skipByteOrderMark(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') reader.reset();
+    }
+}
@@ -0,0 +1,154 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.enums.ConflictPolicy;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.UpsertReport;
+import com.hameed.hameedpm.model.Vault;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Diffs incoming credentials against the vault's index and stages the resulting inserts and updates;
+// nothing touches the vault until apply, which writes the staged batch in one putAll and drops it, so
+// only one batch of plaintext is held at a time. Several rows for the same service name are resolved
+// against the row staged before them, or the vault's record once that batch is applied, so each row
+// is counted by what it changed at that point.
+class BulkUpsert {
+
+    private static final int CONFLICT_SAMPLE = 10;
+
+    private final Vault vault;
+    private final ConflictPolicy policy;
+
+    // staged plaintext changes by index key, in file order
+    private final Map<String, Credential> staged = new LinkedHashMap<>();
+
+    // service names of the first conflicts, for the report
+    private final List<String> conflicts = new ArrayList<>();
+
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private int conflicting;
+    private int rejected;
+
+    BulkUpsert(Vault vault, ConflictPolicy policy) {
+        this.vault = vault;
+        this.policy = policy;
+    }
+
+    // false when the row conflicts with the vault's record and the policy kept the vault's;
+    // throws IllegalArgumentException for rows that cannot be stored, which are counted as rejected
+    boolean offer(Credential incoming) {
+        try {
+            validate(incoming);
+        } catch (IllegalArgumentException e) {
+            rejected++;
+            throw e;
+        }
+        String key = Vault.indexKey(incoming.getServiceName());
+        Credential current = staged.get(key);
+        if (current == null) {
+            current = vault.findCredential(incoming.getServiceName()).map(vault::open).orElse(null);
+        }
+        if (current == null) {
+            staged.put(key, new Credential(incoming));
+            inserted++;
+            return true;
+        }
+
+        Credential resolved = resolve(current, incoming);
+        if (resolved == null) {
+            conflicting++;
+            if (conflicts.size() < CONFLICT_SAMPLE) conflicts.add(current.getServiceName());
+            return false;
+        }
+        if (sameContent(current, resolved)) {
+            unchanged++;
+        } else {
+            staged.put(key, resolved);
+            updated++;
+        }
+        return true;
+    }
+
+    void apply() {
+        vault.putAll(staged.values());
+        staged.clear();
+    }
+
+    // drops the staged batch without writing it, for previews
+    void discard() {
+        staged.clear();
+    }
+
+    UpsertReport report() {
+        return new UpsertReport(inserted, updated, unchanged, conflicting, rejected, 0, List.copyOf(conflicts));
+    }
+
+    // the record to store, or null when the policy keeps the vault's record over a differing import
+    private Credential resolve(Credential current, Credential incoming) {
+        return switch (policy) {
+            case SKIP -> sameContent(current, incoming) ? current : null;
+            case OVERWRITE -> withName(new Credential(incoming), current);
+            case MERGE -> merge(current, incoming);
+            case KEEP_NEWEST -> {
+                if (sameContent(current, incoming)) yield current;
+                yield isNewer(incoming.getModifiedAt(), current.getModifiedAt())
+                        ? withName(new Credential(incoming), current)
+                        : null;
+            }
+        };
+    }
+
+    private Credential merge(Credential current, Credential incoming) {
+        Credential merged = new Credential(current);
+        merged.setUsername(incoming.getUsername());
+        merged.setPassword(incoming.getPassword());
+        Map<String, String> info = new LinkedHashMap<>();
+        if (current.getAdditionalInfo() != null) info.putAll(current.getAdditionalInfo());
+        if (incoming.getAdditionalInfo() != null) info.putAll(incoming.getAdditionalInfo());
+        merged.setAdditionalInfo(info);
+        if (!sameContent(current, merged)) {
+            // a changed record takes the import's date, or now when the import has none
+            merged.setModifiedAt(incoming.getModifiedAt());
+        }
+        return merged;
+    }
+
+    // the vault's spelling of the service name is kept, so case-only differences are not updates
+    private static Credential withName(Credential credential, Credential current) {
+        credential.setServiceName(current.getServiceName());
+        credential.setSealedSecret(null);
+        return credential;
+    }
+
+    // an unknown date is older than any known one
+    private static boolean isNewer(Instant incoming, Instant current) {
+        if (incoming == null) return false;
+        return current == null || incoming.isAfter(current);
+    }
+
+    private static boolean sameContent(Credential a, Credential b) {
+        return Objects.equals(a.getUsername(), b.getUsername())
+                && Objects.equals(a.getPassword(), b.getPassword())
+                && Objects.equals(infoOf(a), infoOf(b));
+    }
+
+    private static Map<String, String> infoOf(Credential credential) {
+        return credential.getAdditionalInfo() != null ? credential.getAdditionalInfo() : Map.of();
+    }
+
+    private static void validate(Credential credential) {
+        if (credential == null || credential.getServiceName() == null || credential.getServiceName().isEmpty()) {
+            throw new IllegalArgumentException("Credential and service name cannot be null or empty");
+        }
+        if (credential.getUsername() == null || credential.getPassword() == null) {
+            throw new IllegalArgumentException("Credential for service '" + credential.getServiceName() + "' is missing a username or password");
+        }
+    }
+}
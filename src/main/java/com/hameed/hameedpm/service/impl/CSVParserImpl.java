@@ -1,5 +1,6 @@
 package com.hameed.hameedpm.service.impl;
 
+import com.hameed.hameedpm.enums.TemplateType;
 import com.hameed.hameedpm.model.Credential;
 import com.hameed.hameedpm.service.Parser;
 import org.apache.commons.csv.CSVFormat;
@@ -8,30 +9,59 @@ import org.apache.commons.csv.CSVRecord;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class CSVParserImpl implements Parser {
+    @Override
+    public String getName() {
+        return "csv";
+    }
+
+    // the hameed-pm template; any CSV file no other format claimed
+    @Override
+    public boolean accepts(String fileName, String head) {
+        return Arrays.stream(TemplateType.CSV.getFileExtensions()).anyMatch(extension -> fileName.endsWith("." + extension));
+    }
+
     @Override
     public List<Credential> parse(Path path) throws Exception {
-        try (Reader reader = Files.newBufferedReader(path);
-             CSVParser csvParser = CSVFormat.DEFAULT
-                     .builder()
-                     .setHeader()
-                     .setSkipHeaderRecord(true)
-                     .setTrim(true)
-                     .build().parse(reader)) {
-            List<Credential> credentials = new ArrayList<>();
-            for (CSVRecord csvRecord : csvParser) {
-                Credential credential = getCredential(csvRecord);
-                credentials.add(credential);
-            }
-            return credentials;
+        try (Stream<Credential> credentials = stream(path)) {
+            return credentials.toList();
+        } catch (UncheckedIOException e) {
+            throw new Exception("Failed to parse CSV file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public Stream<Credential> stream(Path path) throws Exception {
+        Reader reader = null;
+        try {
+            reader = Files.newBufferedReader(path);
+            CSVParser csvParser = CSVFormat.DEFAULT
+                    .builder()
+                    .setHeader()
+                    .setSkipHeaderRecord(true)
+                    .setTrim(true)
+                    .build().parse(reader);
+            // records are pulled one at a time from the reader as the stream is consumed
+            return csvParser.stream()
+                    .map(this::getCredential)
+                    .onClose(() -> {
+                        try {
+                            csvParser.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
         } catch (IOException e) {
+            if (reader != null) reader.close();
             throw new Exception("Failed to parse CSV file: " + e.getMessage(), e);
         }
     }
@@ -39,12 +69,18 @@ public class CSVParserImpl implements Parser {
     private Credential getCredential(CSVRecord csvRecord) {
         Credential credential = new Credential();
         credential.setServiceName(csvRecord.get(0));
-        credential.setUsername(csvRecord.get(1));
-        credential.setPassword(csvRecord.get(2));
+        // short rows are left for validation instead of failing the whole file
+        credential.setUsername(csvRecord.isSet(1) ? csvRecord.get(1) : null);
+        credential.setPassword(csvRecord.isSet(2) ? csvRecord.get(2) : null);
+        if (credential.getServiceName().isEmpty()) {
+            // rejected on insert, no point building its extra info
+            credential.setAdditionalInfo(new LinkedHashMap<>());
+            return credential;
+        }
         // Add any additional fields as needed from i=3 onwards
         Map<String, String> additionalInfo = new LinkedHashMap<>();
         int i = 3;
-        while ((i + 1) <= csvRecord.size()) {
+        while ((i + 1) < csvRecord.size()) {
             String key = csvRecord.get(i).trim();
             String value = csvRecord.get(i + 1).trim();
             if (!key.isBlank()) additionalInfo.put(key, value);
@@ -1,9 +1,13 @@
 package com.hameed.hameedpm.service.impl;
 
+import com.hameed.hameedpm.enums.ConflictPolicy;
 import com.hameed.hameedpm.exception.ResourceNotFoundException;
 import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.UpsertReport;
+import com.hameed.hameedpm.model.Vault;
 import com.hameed.hameedpm.service.ICredentialService;
 import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.Metrics;
 import com.hameed.hameedpm.util.StringUtil;
 import org.springframework.shell.core.command.CommandContext;
 import org.springframework.stereotype.Service;
@@ -12,10 +16,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Stream;
 
+// Reads go straight to the vault's snapshot and may run on any thread; every change goes through
+// IVaultService.mutate, which applies and saves one change at a time.
 @Service
 public class CredentialService implements ICredentialService {
 
+    private static final int BATCH_SIZE = 1_000;
+
     private final IVaultService vaultService;
 
     public CredentialService(IVaultService vaultService) {
@@ -24,8 +33,7 @@ public class CredentialService implements ICredentialService {
 
     @Override
     public void saveCredential(Credential credential) throws Exception {
-        addCredential(credential);
-        vaultService.persistVault();
+        vaultService.mutate(vault -> addCredential(vault, credential));
     }
 
     @Override
@@ -38,54 +46,134 @@ public class CredentialService implements ICredentialService {
         if (serviceName == null || serviceName.isEmpty()) {
             throw new IllegalArgumentException("Service name cannot be null or empty");
         }
-        return vaultService.getCurrentVault().getCredentials().stream()
-                .filter(cred -> cred.getServiceName().equalsIgnoreCase(serviceName))
-                .findFirst();
+        // only the requested record is opened
+        Metrics.Sample sample = Metrics.start();
+        Optional<Credential> credential = vaultService.getCurrentVault().openCredential(serviceName);
+        Metrics.stop("lookup", sample);
+        Metrics.increment(credential.isPresent() ? "lookup.hit" : "lookup.miss");
+        return credential;
+    }
+
+    @Override
+    public Credential openCredential(Credential credential) {
+        return vaultService.getCurrentVault().open(credential);
+    }
+
+    @Override
+    public List<Credential> searchCredentials(String query) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search text cannot be null or empty");
+        }
+        return vaultService.getCurrentVault().search(query.trim());
+    }
+
+    @Override
+    public List<String> completeServiceName(String prefix, int limit) {
+        return vaultService.getCurrentVault().findByPrefix(prefix != null ? prefix : "", limit).stream()
+                .map(Credential::getServiceName)
+                .toList();
     }
 
     @Override
     public void updateCredential(String serviceName, Credential updatedCredential) throws Exception {
-        Credential existingCredential = getCredentialByServiceName(serviceName)
-                .orElseThrow(() -> new ResourceNotFoundException("Credential for service '" + serviceName + "' not found"));
-        existingCredential.setUsername(updatedCredential.getUsername());
-        existingCredential.setPassword(updatedCredential.getPassword());
-        existingCredential.setAdditionalInfo(updatedCredential.getAdditionalInfo());
-        vaultService.persistVault();
+        if (serviceName == null || serviceName.isEmpty()) {
+            throw new IllegalArgumentException("Service name cannot be null or empty");
+        }
+        vaultService.mutate(vault -> {
+            if (!vault.updateCredential(serviceName, updatedCredential)) {
+                throw new ResourceNotFoundException("Credential for service '" + serviceName + "' not found");
+            }
+        });
     }
 
     @Override
     public void deleteCredential(String serviceName) throws Exception {
-        vaultService.getCurrentVault().getCredentials().remove(getCredentialByServiceName(serviceName)
+        if (serviceName == null || serviceName.isEmpty()) {
+            throw new IllegalArgumentException("Service name cannot be null or empty");
+        }
+        vaultService.mutate(vault -> vault.removeCredential(serviceName)
                 .orElseThrow(() -> new ResourceNotFoundException("Credential for service '" + serviceName + "' not found")));
-        vaultService.persistVault();
     }
 
     @Override
     public void addAll(List<Credential> credentials, CommandContext ctx) throws Exception {
-        credentials.forEach(credential -> {
-            try{
-                addCredential(credential);
+        addAll(credentials.stream(), ctx);
+    }
+
+    @Override
+    public void addAll(Stream<Credential> credentials, CommandContext ctx) throws Exception {
+        upsertAll(credentials, ConflictPolicy.SKIP, ctx);
+    }
+
+    @Override
+    public UpsertReport upsertAll(Stream<Credential> credentials, ConflictPolicy policy, CommandContext ctx) throws Exception {
+        UpsertReport[] report = new UpsertReport[1];
+        // one mutation for the whole import, saved once: each batch is diffed against the index and
+        // written to the vault before the next is read, and a failure part way undoes the earlier ones
+        vaultService.mutate(vault -> report[0] = diff(vault, credentials, policy, ctx, true).report());
+        return report[0];
+    }
+
+    // the same diff without applying it; reads the vault like any other reader and takes no lock
+    @Override
+    public UpsertReport previewUpsert(Stream<Credential> credentials, ConflictPolicy policy, CommandContext ctx) {
+        return diff(vaultService.getCurrentVault(), credentials, policy, ctx, false).report();
+    }
+
+    private BulkUpsert diff(Vault vault, Stream<Credential> credentials, ConflictPolicy policy, CommandContext ctx, boolean apply) {
+        BulkUpsert upsert = new BulkUpsert(vault, policy);
+        // pull records in bounded batches so only one batch of parsed rows is alive at a time
+        List<Credential> batch = new ArrayList<>(BATCH_SIZE);
+        Iterator<Credential> iterator = credentials.iterator();
+        Vault.Savepoint savepoint = null;
+        try {
+            boolean more = true;
+            while (more) {
+                while (batch.size() < BATCH_SIZE && (more = iterator.hasNext())) {
+                    batch.add(iterator.next());
+                }
+                diffBatch(upsert, batch, ctx);
+                batch.clear();
+                if (!apply) {
+                    upsert.discard();
+                    continue;
+                }
+                // a single batch needs no savepoint: nothing is written before it is complete
+                if (savepoint == null && more) savepoint = vault.savepoint();
+                Metrics.Sample sample = Metrics.start();
+                upsert.apply();
+                Metrics.stop("ingest.insert", sample);
+            }
+        } catch (RuntimeException e) {
+            if (savepoint != null) vault.rollbackTo(savepoint);
+            throw e;
+        }
+        return upsert;
+    }
+
+    // conflicts are counted in the report; only rows that cannot be stored are named here
+    private void diffBatch(BulkUpsert upsert, List<Credential> batch, CommandContext ctx) {
+        Metrics.Sample sample = Metrics.start();
+        for (Credential credential : batch) {
+            try {
+                upsert.offer(credential);
             } catch (IllegalArgumentException ex) {
                 ctx.outputWriter().println(ex.getMessage());
-                ctx.outputWriter().flush();
             }
-        });
-
-        // after all viable credentials added to the vault
-        // persist
-        vaultService.persistVault();
+        }
+        Metrics.stop("ingest.diff", sample);
+        ctx.outputWriter().flush();
     }
 
-    private void addCredential(Credential credential) throws IllegalArgumentException {
+    private void addCredential(Vault vault, Credential credential) throws IllegalArgumentException {
         if (credential == null || credential.getServiceName() == null || credential.getServiceName().isEmpty()) {
             throw new IllegalArgumentException("Credential and service name cannot be null or empty");
         }
-        if (vaultService.getCurrentVault().getCredentials().isEmpty()) {
-            vaultService.getCurrentVault().setCredentials(new ArrayList<>());
-        } else if (getCredentialByServiceName(credential.getServiceName()).isPresent()) {
+        if (credential.getUsername() == null || credential.getPassword() == null) {
+            throw new IllegalArgumentException("Credential for service '" + credential.getServiceName() + "' is missing a username or password");
+        }
+        if (!vault.addCredential(credential)) {
             throw new IllegalArgumentException("Credential for service '" + credential.getServiceName() + "' already exists");
         }
-
-        vaultService.getCurrentVault().getCredentials().add(credential);
     }
 }
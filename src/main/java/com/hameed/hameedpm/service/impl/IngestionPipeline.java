@@ -0,0 +1,429 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.enums.RecordError;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.IngestionSummary.DuplicateGroup;
+import com.hameed.hameedpm.model.IngestionSummary.ErrorGroup;
+import com.hameed.hameedpm.model.IngestionSummary.FileSummary;
+import com.hameed.hameedpm.model.Vault;
+import com.hameed.hameedpm.service.Parser;
+import com.hameed.hameedpm.util.Metrics;
+
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Parses the files of one load concurrently, one virtual thread per file, and merges their records
+// on the calling thread. Parsers hand records over through a bounded queue, so a fast parser waits
+// for the merge instead of filling the heap. The merge validates each record and picks one per
+// service name: the most recently modified, or on a tie the one later in the file order. The result
+// does not depend on how the parsers interleave.
+// Only the position of each name's winner is kept, never the records themselves, so a load of any
+// size holds no plaintext beyond the chunks in flight. The winners are read back from the files, in
+// file order, when the result's credentials are streamed.
+class IngestionPipeline {
+
+    // records are handed over in chunks so the parsers do not contend on the queue for every record;
+    // at most QUEUE_CHUNKS * CHUNK_SIZE records are in flight
+    private static final int CHUNK_SIZE = 512;
+    private static final int QUEUE_CHUNKS = 32;
+
+    // rows listed per error class, and duplicate groups listed, in the summary
+    private static final int SAMPLE_SIZE = 10;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    // where the record that wins a service name is, with what the merge compares it on; row is the
+    // record's position in its file, starting at 1
+    private record Winner(String serviceName, Instant modifiedAt, int file, long row) {}
+
+    private record Location(int file, long row) {}
+
+    // consecutive records of one file; the last chunk of a file carries no records and any parse error
+    private record Chunk(int file, long firstRow, List<Credential> credentials, boolean last, Exception error) {
+        static Chunk endOf(int file, Exception error) {
+            return new Chunk(file, 0, List.of(), true, error);
+        }
+    }
+
+    // what the merge kept and dropped; errors holds the parse failure of each file, or null
+    final class Result {
+        private final List<Path> paths;
+        private final Map<String, Winner> winners;
+        private final long[] records;
+        private final List<FileSummary> files;
+        private final List<Exception> errors;
+        private final Map<RecordError, ErrorGroup> rejections;
+        private final int rejected;
+        private final int duplicates;
+        private final int duplicateGroupCount;
+        private final List<DuplicateGroup> duplicateGroups;
+
+        private Result(List<Path> paths, Map<String, Winner> winners, long[] records, List<FileSummary> files,
+                       List<Exception> errors, Map<RecordError, ErrorGroup> rejections, int rejected,
+                       int duplicates, int duplicateGroupCount, List<DuplicateGroup> duplicateGroups) {
+            this.paths = paths;
+            this.winners = winners;
+            this.records = records;
+            this.files = files;
+            this.errors = errors;
+            this.rejections = rejections;
+            this.rejected = rejected;
+            this.duplicates = duplicates;
+            this.duplicateGroupCount = duplicateGroupCount;
+            this.duplicateGroups = duplicateGroups;
+        }
+
+        // the deduplicated records in file order, parsed again as the stream is consumed; the caller
+        // must close the stream. A file that changed since the merge fails the stream.
+        Stream<Credential> credentials() {
+            WinnerReader reader = new WinnerReader(this);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED), false)
+                    .onClose(reader::close);
+        }
+
+        List<FileSummary> files() { return files; }
+        List<Exception> errors() { return errors; }
+        Map<RecordError, ErrorGroup> rejections() { return rejections; }
+        int rejected() { return rejected; }
+        int duplicates() { return duplicates; }
+        int duplicateGroupCount() { return duplicateGroupCount; }
+        List<DuplicateGroup> duplicateGroups() { return duplicateGroups; }
+
+        boolean failed() {
+            return errors.stream().anyMatch(Objects::nonNull);
+        }
+    }
+
+    private final ParserRegistry parsers;
+    // null when no progress should be shown
+    private final PrintWriter progress;
+
+    IngestionPipeline(ParserRegistry parsers, PrintWriter progress) {
+        this.parsers = parsers;
+        this.progress = progress;
+    }
+
+    Result run(List<Path> files) throws InterruptedException {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        long[] started = new long[files.size()];
+        long[] finished = new long[files.size()];
+        String[] formats = new String[files.size()];
+
+        Map<String, Winner> merged = new HashMap<>();
+        // locations of every record whose service name was seen more than once
+        Map<String, List<Location>> duplicateGroups = new LinkedHashMap<>();
+        Map<RecordError, Long> rejectionCounts = new EnumMap<>(RecordError.class);
+        Map<RecordError, List<Location>> rejectionRows = new EnumMap<>(RecordError.class);
+        long[] records = new long[files.size()];
+        long[] rejectedPerFile = new long[files.size()];
+        Exception[] errors = new Exception[files.size()];
+        // an Error thrown by a parser (out of memory, stack overflow) fails the whole load once the merge is over
+        Error[] fatal = new Error[1];
+        int rejected = 0;
+        int duplicates = 0;
+
+        long mergeStart = System.nanoTime();
+        long lastProgress = mergeStart;
+        long total = 0;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                int file = i;
+                executor.execute(() -> {
+                    started[file] = System.nanoTime();
+                    Exception error = null;
+                    try {
+                        parse(files.get(file), file, formats, queue);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        error = e;
+                    } catch (Error e) {
+                        synchronized (fatal) {
+                            if (fatal[0] == null) fatal[0] = e;
+                        }
+                        error = new Exception(e.toString(), e);
+                    } finally {
+                        // the merge waits for the end of every file, so it is posted however the parser ended
+                        if (!Thread.currentThread().isInterrupted()) {
+                            finished[file] = System.nanoTime();
+                            try {
+                                queue.put(Chunk.endOf(file, error));
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    }
+                });
+            }
+
+            int open = files.size();
+            while (open > 0) {
+                Chunk chunk = queue.take();
+                if (chunk.last()) {
+                    errors[chunk.file()] = chunk.error();
+                    open--;
+                    continue;
+                }
+                long row = chunk.firstRow();
+                for (Credential credential : chunk.credentials()) {
+                    long at = row++;
+                    records[chunk.file()]++;
+                    RecordError problem = validate(credential);
+                    if (problem != null) {
+                        rejected++;
+                        rejectedPerFile[chunk.file()]++;
+                        rejectionCounts.merge(problem, 1L, Long::sum);
+                        List<Location> rows = rejectionRows.computeIfAbsent(problem, key -> new ArrayList<>());
+                        if (rows.size() < SAMPLE_SIZE) rows.add(new Location(chunk.file(), at));
+                        continue;
+                    }
+                    String key = Vault.indexKey(credential.getServiceName());
+                    Winner incoming = new Winner(credential.getServiceName(), credential.getModifiedAt(), chunk.file(), at);
+                    Winner kept = merged.putIfAbsent(key, incoming);
+                    if (kept != null) {
+                        duplicates++;
+                        duplicateGroups.computeIfAbsent(key, k -> new ArrayList<>(List.of(new Location(kept.file(), kept.row()))))
+                                .add(new Location(incoming.file(), incoming.row()));
+                        if (wins(incoming, kept)) merged.put(key, incoming);
+                    }
+                }
+                total += chunk.credentials().size();
+
+                long now = System.nanoTime();
+                if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    progress.printf("\rRead %,d records, %d of %d file(s) done, %,.0f rec/s ",
+                            total, files.size() - open, files.size(), total * 1_000_000_000.0 / (now - mergeStart));
+                    progress.flush();
+                    lastProgress = now;
+                }
+            }
+        } finally {
+            // only reached early when the merge failed; parsers blocked on the full queue are interrupted
+            executor.shutdownNow();
+            executor.close();
+        }
+        if (progress != null && lastProgress != mergeStart) {
+            progress.println();
+            progress.flush();
+        }
+        synchronized (fatal) {
+            if (fatal[0] != null) throw fatal[0];
+        }
+
+        List<FileSummary> summaries = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            summaries.add(new FileSummary(files.get(i).toString(), formats[i], records[i], rejectedPerFile[i],
+                    size(files.get(i)), finished[i] - started[i], errors[i] != null ? message(errors[i]) : null));
+        }
+        Map<RecordError, ErrorGroup> rejections = new EnumMap<>(RecordError.class);
+        rejectionCounts.forEach((problem, count) -> rejections.put(problem,
+                new ErrorGroup(count, rejectionRows.get(problem).stream().map(at -> row(files, at)).toList())));
+        // groups are listed in the order their first record appears
+        List<DuplicateGroup> groups = duplicateGroups.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, List<Location>> group) -> group.getValue().get(0).file())
+                        .thenComparingLong(group -> group.getValue().get(0).row()))
+                .limit(SAMPLE_SIZE)
+                .map(group -> {
+                    Winner winner = merged.get(group.getKey());
+                    return new DuplicateGroup(winner.serviceName(),
+                            group.getValue().stream().map(at -> row(files, at)).toList(),
+                            row(files, new Location(winner.file(), winner.row())));
+                })
+                .toList();
+        return new Result(files, merged, records, summaries, Arrays.asList(errors), rejections, rejected,
+                duplicates, duplicateGroups.size(), groups);
+    }
+
+    // Walks the files again one after the other and yields each record that won its service name.
+    // Files that failed during the merge are read only as far as the merge got. The rows must come back
+    // as the merge saw them: a different record count, or a winner not found where it was or with
+    // another date, means the file changed in between and fails the read rather than load something
+    // unchecked.
+    private final class WinnerReader implements Iterator<Credential> {
+        private final Result result;
+        private int file = -1;
+        private Stream<Credential> stream;
+        private Iterator<Credential> rows;
+        private long row;
+        private long found;
+        private Credential next;
+
+        WinnerReader(Result result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (rows == null && !openNextFile()) return false;
+                Credential credential = read();
+                if (credential == null) {
+                    closeFile();
+                    continue;
+                }
+                row++;
+                if (validate(credential) != null) continue;
+                Winner winner = result.winners.get(Vault.indexKey(credential.getServiceName()));
+                if (winner != null && winner.file() == file && winner.row() == row) {
+                    // the date decided the merge, so a winner that changed it may not have won
+                    if (!Objects.equals(winner.modifiedAt(), credential.getModifiedAt())) throw changed();
+                    found++;
+                    next = credential;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Credential next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Credential credential = next;
+            next = null;
+            return credential;
+        }
+
+        void close() {
+            if (stream != null) stream.close();
+            stream = null;
+            rows = null;
+        }
+
+        private boolean openNextFile() {
+            if (++file == result.paths.size()) {
+                if (found != result.winners.size()) throw changed();
+                return false;
+            }
+            row = 0;
+            if (failed() && result.records[file] == 0) {
+                rows = Collections.emptyIterator();
+                return true;
+            }
+            try {
+                Path path = result.paths.get(file);
+                stream = Metrics.timed("ingest.reread", parsers.forFile(path).stream(path));
+            } catch (Exception e) {
+                throw reread(e);
+            }
+            rows = stream.iterator();
+            return true;
+        }
+
+        // the next record of the current file, or null at its end, or where the merge stopped reading a
+        // file that failed
+        private Credential read() {
+            if (failed() && row == result.records[file]) return null;
+            try {
+                return rows.hasNext() ? rows.next() : null;
+            } catch (RuntimeException e) {
+                throw reread(e);
+            }
+        }
+
+        private boolean failed() {
+            return result.errors.get(file) != null;
+        }
+
+        private void closeFile() {
+            boolean complete = row == result.records[file];
+            close();
+            if (!complete) throw changed();
+        }
+
+        private IllegalStateException changed() {
+            String name = file < result.paths.size() ? result.paths.get(file).toString() : "an input file";
+            return new IllegalStateException(name + " changed while it was being loaded. The vault was not changed.");
+        }
+
+        private IllegalStateException reread(Exception e) {
+            return new IllegalStateException("Could not read " + result.paths.get(file) + " again: " + message(e)
+                    + ". The vault was not changed.", e);
+        }
+    }
+
+    private void parse(Path path, int file, String[] formats, BlockingQueue<Chunk> queue) throws Exception {
+        Parser parser = parsers.forFile(path);
+        formats[file] = parser.getName();
+        long firstRow = 1;
+        List<Credential> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (Stream<Credential> credentials = Metrics.timed("ingest.parse", parser.stream(path))) {
+            Iterator<Credential> iterator = credentials.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    queue.put(new Chunk(file, firstRow, chunk, false, null));
+                    firstRow += chunk.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            queue.put(new Chunk(file, firstRow, chunk, false, null));
+        }
+    }
+
+    // newest modification wins, an unknown date being the oldest; on a tie the later record wins
+    private static boolean wins(Winner challenger, Winner kept) {
+        Instant challengerTime = challenger.modifiedAt();
+        Instant keptTime = kept.modifiedAt();
+        if (challengerTime != null && keptTime != null && !challengerTime.equals(keptTime)) {
+            return challengerTime.isAfter(keptTime);
+        }
+        if (challengerTime == null && keptTime != null) return false;
+        if (challengerTime != null && keptTime == null) return true;
+        return challenger.file() != kept.file() ? challenger.file() > kept.file() : challenger.row() > kept.row();
+    }
+
+    // same rules as a single add; null when the record can be stored
+    private static RecordError validate(Credential credential) {
+        if (credential == null || credential.getServiceName() == null || credential.getServiceName().isEmpty()) {
+            return RecordError.MISSING_SERVICE_NAME;
+        }
+        if (credential.getUsername() == null) return RecordError.MISSING_USERNAME;
+        if (credential.getPassword() == null) return RecordError.MISSING_PASSWORD;
+        return null;
+    }
+
+    private static String row(List<Path> files, Location location) {
+        return files.get(location.file()).getFileName() + ":" + location.row();
+    }
+
+    // first line only: parser messages can carry the source location on further lines
+    private static String message(Exception e) {
+        Throwable cause = e instanceof UncheckedIOException && e.getCause() != null ? e.getCause() : e;
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        int end = message.indexOf('\n');
+        return end >= 0 ? message.substring(0, end) : message;
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -2,35 +2,148 @@ package com.hameed.hameedpm.service.impl;
 
 import com.hameed.hameedpm.enums.TemplateType;
 import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.IngestionOptions;
+import com.hameed.hameedpm.model.IngestionSummary;
+import com.hameed.hameedpm.model.UpsertReport;
 import com.hameed.hameedpm.service.IIngestionService;
-import com.hameed.hameedpm.service.Parser;
+import com.hameed.hameedpm.util.IngestionReport;
+import com.hameed.hameedpm.util.Metrics;
 import org.springframework.shell.core.command.CommandContext;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 public class IngestionService implements IIngestionService {
 
+    private static final String GLOB_CHARACTERS = "*?[{";
 
     private final CredentialService credentialService;
-    private Map<TemplateType, Parser> parserMap;
+    private final ParserRegistry parsers;
 
     public IngestionService(CredentialService credentialService) {
         this.credentialService = credentialService;
-        this.parserMap = Map.of(
-            TemplateType.CSV, new CSVParserImpl()
-        );
+        this.parsers = new ParserRegistry();
     }
 
     @Override
     public void ingest(String filePath, CommandContext ctx) throws Exception {
-        Path path = Paths.get(filePath);
-        List<Credential> credentials = parserMap.get(determineTemplateType(path)).parse(path);
-        credentialService.addAll(credentials, ctx);
+        IngestionReport.print(ingest(filePath, IngestionOptions.defaults(), ctx), ctx.outputWriter());
+    }
+
+    // source is a file, a directory (its files, not subdirectories) or a glob such as exports/*.csv
+    @Override
+    public IngestionSummary ingest(String source, IngestionOptions options, CommandContext ctx) throws Exception {
+        PrintWriter out = ctx.outputWriter();
+        List<Path> files = resolveSources(source, out);
+        long start = System.nanoTime();
+        Metrics.Sample sample = Metrics.start();
+
+        // parsing and merging run without the vault's writer lock; only the diff and apply hold it
+        // the merge keeps where each winner is; the winners are parsed again as the upsert reads them
+        IngestionPipeline.Result merged = new IngestionPipeline(parsers, options.showProgress() ? out : null).run(files);
+        UpsertReport outcome = null;
+        if (options.dryRun()) {
+            // what the readable files would do; failed files are reported, not thrown
+            try (Stream<Credential> winners = merged.credentials()) {
+                outcome = credentialService.previewUpsert(winners, options.onConflict(), ctx)
+                        .withMerged(merged.rejected(), merged.duplicates());
+            }
+        } else if (merged.failed()) {
+            // a single file fails with its own error, as before directories were accepted
+            if (files.size() == 1) throw merged.errors().get(0);
+            IngestionReport.print(summary(merged, null, System.nanoTime() - start, false), out);
+            long failed = merged.errors().stream().filter(Objects::nonNull).count();
+            throw new IllegalStateException(failed + " of " + files.size() + " file(s) could not be read. The vault was not changed.");
+        } else {
+            try (Stream<Credential> winners = merged.credentials()) {
+                outcome = credentialService.upsertAll(winners, options.onConflict(), ctx)
+                        .withMerged(merged.rejected(), merged.duplicates());
+            }
+        }
+
+        Metrics.stop(options.dryRun() ? "ingest.dry-run" : "ingest", sample,
+                merged.files().stream().mapToLong(IngestionSummary.FileSummary::bytes).sum());
+        return summary(merged, outcome, System.nanoTime() - start, options.dryRun());
+    }
+
+    private static IngestionSummary summary(IngestionPipeline.Result merged, UpsertReport outcome, long nanos, boolean dryRun) {
+        return new IngestionSummary(merged.files(), merged.rejections(), merged.duplicateGroupCount(),
+                merged.duplicateGroups(), outcome, nanos, dryRun);
+    }
+
+    private List<Path> resolveSources(String source, PrintWriter out) throws IOException {
+        if (source.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0)) {
+            return supported(glob(source), out);
+        }
+        Path path = Paths.get(source);
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> entries = Files.list(path)) {
+                return supported(entries.filter(Files::isRegularFile).sorted().toList(), out);
+            }
+        }
+        // a single named file must be readable; unsupported formats fail here with the known formats
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("File not found: " + source);
+        }
+        parsers.forFile(path);
+        return List.of(path);
+    }
+
+    // matches are searched from the longest leading part of the pattern without glob characters
+    private static List<Path> glob(String pattern) throws IOException {
+        Path base = Paths.get("");
+        Path rest = Paths.get(pattern);
+        if (rest.isAbsolute()) {
+            base = rest.getRoot();
+            rest = base.relativize(rest);
+        }
+        while (rest.getNameCount() > 1 && rest.getName(0).toString().chars().noneMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0)) {
+            base = base.resolve(rest.getName(0));
+            rest = rest.subpath(1, rest.getNameCount());
+        }
+        Path root = base.toString().isEmpty() ? Paths.get(".") : base;
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("No files match: " + pattern);
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + rest);
+        int depth = rest.toString().contains("**") ? Integer.MAX_VALUE : rest.getNameCount();
+        try (Stream<Path> entries = Files.walk(root, depth)) {
+            List<Path> matches = entries
+                    .filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(root.relativize(file)))
+                    .map(Path::normalize)
+                    .sorted()
+                    .toList();
+            if (matches.isEmpty()) {
+                throw new IllegalArgumentException("No files match: " + pattern);
+            }
+            return matches;
+        }
+    }
+
+    // files in a directory or glob that no format accepts are left out and named
+    private List<Path> supported(List<Path> files, PrintWriter out) throws IOException {
+        List<Path> supported = new ArrayList<>();
+        for (Path file : files) {
+            if (parsers.find(file).isPresent()) {
+                supported.add(file);
+            } else {
+                out.println("Skipped " + file + ": not a known export format");
+            }
+        }
+        if (supported.isEmpty()) {
+            throw new IllegalArgumentException("No importable files found (known formats: " + String.join(", ", parsers.names()) + ")");
+        }
+        return supported;
     }
 
     @Override
@@ -43,13 +156,4 @@ public class IngestionService implements IIngestionService {
             throw new RuntimeException("Failed to create template file: " + e.getMessage(), e);
         }
     }
-
-    private TemplateType determineTemplateType(Path path) {
-        String fileName = path.getFileName().toString().toLowerCase();
-        // extensions now are a string attached to the enum type as an array of strings
-        return Arrays.stream(TemplateType.values())
-                .filter(type -> Arrays.stream(type.getFileExtensions()).anyMatch(fileName::endsWith))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Unsupported file type for ingestion: " + fileName));
-    }
 }
@@ -0,0 +1,81 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.util.CryptoUtil;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Decides how many PBKDF2 iterations a vault should use. With calibration on, the count is chosen so
+// one derivation takes about targetDeriveTime on this host; otherwise it is fixed at minIterations.
+// Either way it never drops below minIterations or exceeds maxIterations.
+record KdfPolicy(boolean calibrate, Duration targetDeriveTime, int minIterations, int maxIterations,
+                 double rewrapTolerance) {
+
+    static final int DEFAULT_ITERATIONS = 200_000;
+
+    private static final int PROBE_ITERATIONS = 20_000;
+    private static final int PROBE_RUNS       = 5;
+    private static final int ROUNDING         = 1_000;
+
+    // chosen iteration count and the derive time expected for it
+    record Cost(int iterations, long deriveMillis) {}
+
+    KdfPolicy {
+        if (minIterations <= 0 || maxIterations < minIterations) {
+            throw new IllegalArgumentException("Invalid KDF iteration bounds: " + minIterations + ".." + maxIterations);
+        }
+        if (rewrapTolerance < 1.0) {
+            throw new IllegalArgumentException("KDF re-wrap tolerance must be at least 1.0");
+        }
+    }
+
+    static KdfPolicy fixed(int iterations) {
+        return new KdfPolicy(false, Duration.ZERO, iterations, iterations, 1.0);
+    }
+
+    // cost for a new vault; with calibration on this times a few short derivations on this host
+    Cost initialCost() throws Exception {
+        if (!calibrate) {
+            return new Cost(minIterations, 0);
+        }
+        warmUp();
+        char[] password = "calibration".toCharArray();
+        byte[] salt = CryptoUtil.generateRandomBytes(16);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_RUNS; i++) {
+            long start = System.nanoTime();
+            byte[] key = CryptoUtil.deriveKey(password, salt, PROBE_ITERATIONS);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+            Arrays.fill(key, (byte) 0);
+        }
+        return scaled(PROBE_ITERATIONS, Duration.ofNanos(fastest));
+    }
+
+    // loads the PBKDF2 provider so its one-off setup is not mistaken for per-iteration cost
+    static void warmUp() throws Exception {
+        Arrays.fill(CryptoUtil.deriveKey("warm-up".toCharArray(), new byte[16], 1), (byte) 0);
+    }
+
+    // whether a vault whose key took deriveTime to derive with the given iterations should be re-wrapped
+    boolean needsRewrap(int iterations, Duration deriveTime) {
+        if (iterations < minIterations) return true;
+        if (!calibrate) return false;
+
+        double ratio = (double) deriveTime.toNanos() / targetDeriveTime.toNanos();
+        boolean outsideWindow = ratio > rewrapTolerance || ratio < 1.0 / rewrapTolerance;
+        // a vault already pinned at a bound cannot get any closer to the target
+        return outsideWindow && scaled(iterations, deriveTime).iterations() != iterations;
+    }
+
+    // cost to re-wrap with, scaled from the derivation that was just measured
+    Cost rewrapCost(int iterations, Duration deriveTime) {
+        return calibrate ? scaled(iterations, deriveTime) : new Cost(minIterations, 0);
+    }
+
+    private Cost scaled(int measuredIterations, Duration measuredTime) {
+        double nanosPerIteration = Math.max(1.0, (double) measuredTime.toNanos() / measuredIterations);
+        long iterations = Math.round(targetDeriveTime.toNanos() / nanosPerIteration / ROUNDING) * ROUNDING;
+        int clamped = (int) Math.max(minIterations, Math.min(maxIterations, iterations));
+        return new Cost(clamped, Math.round(clamped * nanosPerIteration / 1_000_000));
+    }
+}
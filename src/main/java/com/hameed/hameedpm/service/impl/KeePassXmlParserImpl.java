@@ -0,0 +1,245 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.service.Parser;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// KeePass 2.x XML export, pulled with StAX one entry at a time. Title becomes the service name,
+// UserName and Password the credential, and URL, Notes, custom strings and the group path
+// additional info. Entry history and the recycle bin are skipped.
+public class KeePassXmlParserImpl implements Parser {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // exports are plain documents; DTDs and external entities are never resolved
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    // KDBX 4 writes times as Base64 seconds since 0001-01-01
+    private static final long SECONDS_FROM_YEAR_ONE_TO_EPOCH = 62_135_596_800L;
+
+    private static class Group {
+        String name = "";
+        boolean recycled;
+
+        Group(boolean recycled) {
+            this.recycled = recycled;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "keepass-xml";
+    }
+
+    @Override
+    public boolean accepts(String fileName, String head) {
+        return fileName.endsWith(".xml") && head.contains("<KeePassFile");
+    }
+
+    @Override
+    public List<Credential> parse(Path path) throws Exception {
+        try (Stream<Credential> credentials = stream(path)) {
+            return credentials.toList();
+        } catch (UncheckedIOException e) {
+            throw new Exception("Failed to parse KeePass export: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public Stream<Credential> stream(Path path) throws Exception {
+        InputStream in = Files.newInputStream(path);
+        XMLStreamReader reader;
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            in.close();
+            throw new Exception("Failed to parse KeePass export: " + e.getMessage(), e);
+        }
+        EntryReader entries = new EntryReader(reader);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<Credential>(
+                        Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                    @Override
+                    public boolean tryAdvance(Consumer<? super Credential> action) {
+                        try {
+                            Credential credential = entries.next();
+                            if (credential == null) return false;
+                            action.accept(credential);
+                            return true;
+                        } catch (XMLStreamException e) {
+                            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+                        }
+                    }
+                }, false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                        in.close();
+                    } catch (XMLStreamException | IOException e) {
+                        throw new UncheckedIOException(new IOException(e.getMessage(), e));
+                    }
+                });
+    }
+
+    // walks the document, keeping only the chain of groups above the current position
+    private static class EntryReader {
+
+        private final XMLStreamReader reader;
+        private final Deque<Group> groups = new ArrayDeque<>();
+        private String recycleBinUuid;
+
+        EntryReader(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        // null at the end of the document
+        Credential next() throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("Group")) {
+                    groups.pop();
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) continue;
+                switch (reader.getLocalName()) {
+                    case "RecycleBinUUID" -> recycleBinUuid = reader.getElementText().trim();
+                    case "Group" -> groups.push(new Group(!groups.isEmpty() && groups.peek().recycled));
+                    // entries read their own children, so these belong to the innermost group
+                    case "UUID" -> {
+                        if (groups.isEmpty()) continue;
+                        String uuid = reader.getElementText().trim();
+                        if (uuid.equals(recycleBinUuid)) groups.peek().recycled = true;
+                    }
+                    case "Name" -> {
+                        if (!groups.isEmpty()) groups.peek().name = reader.getElementText();
+                    }
+                    case "Entry" -> {
+                        Credential credential = readEntry();
+                        if (!groups.isEmpty() && groups.peek().recycled) continue;
+                        return credential;
+                    }
+                    default -> { }
+                }
+            }
+            return null;
+        }
+
+        private Credential readEntry() throws XMLStreamException {
+            Credential credential = new Credential();
+            Map<String, String> additionalInfo = new LinkedHashMap<>();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "String" -> readString(credential, additionalInfo);
+                    case "Times" -> readTimes(credential);
+                    // UUID, icons, tags, auto-type and the History of earlier versions
+                    default -> skipElement();
+                }
+            }
+            String groupPath = groupPath();
+            if (!groupPath.isEmpty()) additionalInfo.putIfAbsent("group", groupPath);
+            credential.setAdditionalInfo(additionalInfo);
+            return credential;
+        }
+
+        private void readString(Credential credential, Map<String, String> additionalInfo) throws XMLStreamException {
+            String key = null;
+            String value = null;
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String element = reader.getLocalName();
+                if (element.equals("Key")) {
+                    key = reader.getElementText();
+                } else if (element.equals("Value")) {
+                    // inside a .kdbx, protected values are masked with the inner stream key
+                    if ("True".equalsIgnoreCase(reader.getAttributeValue(null, "Protected"))) {
+                        throw new IllegalArgumentException(
+                                "KeePass file has masked values; use KeePass's 'Export > KeePass XML (2.x)'");
+                    }
+                    value = reader.getElementText();
+                } else {
+                    skipElement();
+                }
+            }
+            if (key == null || value == null) return;
+            switch (key) {
+                case "Title"    -> credential.setServiceName(value.trim());
+                case "UserName" -> credential.setUsername(value);
+                case "Password" -> credential.setPassword(value);
+                case "URL"      -> { if (!value.isEmpty()) additionalInfo.put("url", value); }
+                case "Notes"    -> { if (!value.isEmpty()) additionalInfo.put("notes", value); }
+                default         -> { if (!key.isBlank()) additionalInfo.put(key.trim(), value); }
+            }
+        }
+
+        private void readTimes(Credential credential) throws XMLStreamException {
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getLocalName().equals("LastModificationTime")) {
+                    credential.setModifiedAt(instant(reader.getElementText().trim()));
+                } else {
+                    skipElement();
+                }
+            }
+        }
+
+        // from a start tag to its matching end tag
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) depth++;
+                else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+            }
+        }
+
+        // the root group is the database itself and is left out
+        private String groupPath() {
+            return groups.reversed().stream()
+                    .skip(1)
+                    .map(group -> group.name)
+                    .collect(Collectors.joining("/"));
+        }
+    }
+
+    private static Instant instant(String text) {
+        if (text.isEmpty()) return null;
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            // not ISO-8601; try the KDBX 4 form
+        }
+        try {
+            byte[] bytes = Base64.getDecoder().decode(text);
+            if (bytes.length != Long.BYTES) return null;
+            long seconds = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong();
+            return Instant.ofEpochSecond(seconds - SECONDS_FROM_YEAR_ONE_TO_EPOCH);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
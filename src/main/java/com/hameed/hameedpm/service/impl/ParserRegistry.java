@@ -0,0 +1,65 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.service.Parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+// Import formats registered in META-INF/services/com.hameed.hameedpm.service.Parser, asked in the
+// order they are listed there: specific formats first, the generic CSV template last.
+class ParserRegistry {
+
+    // enough for a CSV header line or the root element of an XML export
+    private static final int HEAD_BYTES = 4096;
+
+    private final List<Parser> parsers;
+
+    ParserRegistry() {
+        this(ServiceLoader.load(Parser.class, Parser.class.getClassLoader()).stream()
+                .map(ServiceLoader.Provider::get)
+                .toList());
+    }
+
+    ParserRegistry(List<Parser> parsers) {
+        this.parsers = List.copyOf(parsers);
+    }
+
+    Parser forFile(Path path) throws IOException {
+        return find(path).orElseThrow(() -> new IllegalArgumentException("Unsupported file type for ingestion: "
+                + path.getFileName() + " (known formats: " + String.join(", ", names()) + ")"));
+    }
+
+    Optional<Parser> find(Path path) throws IOException {
+        String fileName = path.getFileName().toString().toLowerCase();
+        String head = readHead(path);
+        return parsers.stream()
+                .filter(parser -> parser.accepts(fileName, head))
+                .findFirst();
+    }
+
+    List<String> names() {
+        return parsers.stream().map(Parser::getName).toList();
+    }
+
+    private static String readHead(Path path) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(path)) {
+            head = in.readNBytes(HEAD_BYTES);
+        }
+        // a multi-byte character cut off at the end of the head is replaced, not an error
+        String text = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(ByteBuffer.wrap(head))
+                .toString();
+        return text.startsWith("\uFEFF") ? text.substring(1) : text;
+    }
+}
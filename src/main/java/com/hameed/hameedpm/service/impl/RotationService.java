@@ -0,0 +1,150 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.exception.CommitOutcomeUnknownException;
+import com.hameed.hameedpm.exception.ResourceNotFoundException;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.RotationOptions;
+import com.hameed.hameedpm.model.RotationSummary;
+import com.hameed.hameedpm.model.RotationSummary.Rotation;
+import com.hameed.hameedpm.model.Vault;
+import com.hameed.hameedpm.service.IRotationService;
+import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.Metrics;
+import com.hameed.hameedpm.util.PasswordGenerator;
+import com.hameed.hameedpm.util.RotationReport;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Gives every selected credential a new generated password in one transaction: the changes are
+// staged in memory with the old passwords kept aside, written to the export file if one was asked
+// for, and saved with a single persist. If the export fails, nothing is changed. If the save fails
+// and the vault is back as it was, the export is removed; if it is not known what was saved, the
+// export is kept, since it then holds the only copy of passwords the vault may have taken.
+@Service
+public class RotationService implements IRotationService {
+
+    private final IVaultService vaultService;
+
+    public RotationService(IVaultService vaultService) {
+        this.vaultService = vaultService;
+    }
+
+    @Override
+    public RotationSummary rotate(RotationOptions options) throws Exception {
+        if (isBlank(options.namePattern()) && isBlank(options.field())) {
+            throw new IllegalArgumentException("Select the credentials to rotate with --pattern <glob> and/or "
+                    + "--field <key[=value]>; use --pattern '*' to rotate every credential");
+        }
+        if (options.export() != null && Files.exists(options.export())) {
+            throw new IllegalArgumentException("Export file already exists: " + options.export());
+        }
+        Pattern namePattern = !isBlank(options.namePattern()) ? glob(options.namePattern().trim()) : null;
+        String[] field = !isBlank(options.field()) ? options.field().split("=", 2) : null;
+        PasswordGenerator generator = options.dryRun() ? null : new PasswordGenerator(options.length());
+
+        Metrics.Sample sample = Metrics.start();
+        long start = System.nanoTime();
+        if (options.dryRun()) {
+            List<Rotation> rotations = select(vaultService.getCurrentVault(), namePattern, field).stream()
+                    .map(credential -> new Rotation(credential.getServiceName(), credential.getUsername(),
+                            credential.getPassword(), null))
+                    .toList();
+            Metrics.stop("rotate.dry-run", sample);
+            return new RotationSummary(rotations, true, null, System.nanoTime() - start);
+        }
+
+        List<Rotation> rotations = new ArrayList<>();
+        vaultService.beginTransaction();
+        try {
+            vaultService.mutate(vault -> {
+                List<Credential> changes = select(vault, namePattern, field);
+                for (Credential credential : changes) {
+                    char[] generated = generator.next();
+                    String password = new String(generated);
+                    Arrays.fill(generated, '\0');
+                    rotations.add(new Rotation(credential.getServiceName(), credential.getUsername(),
+                            credential.getPassword(), password));
+                    credential.setPassword(password);
+                    credential.setModifiedAt(null);  // stamped by putAll
+                }
+                vault.putAll(changes);
+            });
+            if (options.export() != null) {
+                RotationReport.writeCsv(rotations, options.export());
+            }
+        } catch (Exception e) {
+            vaultService.rollbackTransaction();
+            throw e;
+        }
+        try {
+            vaultService.commitTransaction();
+        } catch (CommitOutcomeUnknownException e) {
+            if (options.export() == null) throw e;
+            throw new CommitOutcomeUnknownException(e.getMessage() + " The old and new passwords are kept in "
+                    + options.export() + ": unlock the vault and check which passwords it holds before "
+                    + "changing any at the services.", e);
+        } catch (Exception e) {
+            if (options.export() != null) {
+                Files.deleteIfExists(options.export());
+            }
+            throw e;
+        }
+        Metrics.stop("rotate", sample);
+        return new RotationSummary(rotations, false,
+                options.export() != null ? options.export().toString() : null, System.nanoTime() - start);
+    }
+
+    // opened copies of the matching credentials, in vault order
+    private static List<Credential> select(Vault vault, Pattern namePattern, String[] field) {
+        List<Credential> selected = new ArrayList<>();
+        for (Credential credential : vault.getCredentials()) {
+            if (namePattern != null && !namePattern.matcher(credential.getServiceName()).matches()) continue;
+            Credential opened = vault.open(credential);
+            if (field != null && !hasField(opened, field[0].trim(), field.length > 1 ? field[1].trim() : null)) continue;
+            selected.add(opened);
+        }
+        if (selected.isEmpty()) {
+            throw new ResourceNotFoundException("No credentials match the selection");
+        }
+        return selected;
+    }
+
+    // keys and values compare ignoring case; without a value the key only has to be set
+    private static boolean hasField(Credential credential, String key, String value) {
+        if (credential.getAdditionalInfo() == null) return false;
+        for (Map.Entry<String, String> info : credential.getAdditionalInfo().entrySet()) {
+            if (info.getKey().equalsIgnoreCase(key) && info.getValue() != null
+                    && (value == null ? !info.getValue().isEmpty() : info.getValue().equalsIgnoreCase(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // * matches any run of characters and ? any one; service names compare ignoring case
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) regex.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
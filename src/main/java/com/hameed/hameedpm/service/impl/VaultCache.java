@@ -0,0 +1,104 @@
+package com.hameed.hameedpm.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Unlocked vaults that are not the current one, keyed by vault name and kept in the order they were
+// set aside. Beyond capacity the least recently used entry is evicted; a background virtual thread
+// evicts entries left unused for idleTimeout. Every evicted or closed entry goes through onEvict,
+// which is where its keys are wiped.
+class VaultCache<T> {
+
+    private record Entry<T>(T value, long parkedAt) {}
+
+    private final int capacity;
+    private final long idleNanos;
+    private final Consumer<T> onEvict;
+
+    // oldest first
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>();
+    private Thread sweeper;
+
+    VaultCache(int capacity, Duration idleTimeout, Consumer<T> onEvict) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Vault cache capacity must not be negative");
+        }
+        this.capacity = capacity;
+        this.idleNanos = idleTimeout.isZero() || idleTimeout.isNegative() ? Long.MAX_VALUE : idleTimeout.toNanos();
+        this.onEvict = onEvict;
+    }
+
+    synchronized void put(String name, T value) {
+        Entry<T> previous = entries.remove(name);
+        if (previous != null && previous.value() != value) {
+            onEvict.accept(previous.value());
+        }
+        entries.put(name, new Entry<>(value, System.nanoTime()));
+        while (entries.size() > capacity) {
+            evict(entries.keySet().iterator().next());
+        }
+        if (!entries.isEmpty() && idleNanos != Long.MAX_VALUE && sweeper == null) {
+            sweeper = Thread.ofVirtual().name("vault-cache-sweeper").start(this::sweep);
+        }
+        notifyAll();
+    }
+
+    // removes the entry without evicting it: the caller takes over its keys
+    synchronized T take(String name) {
+        Entry<T> entry = entries.remove(name);
+        return entry != null ? entry.value() : null;
+    }
+
+    synchronized boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    synchronized boolean close(String name) {
+        if (!entries.containsKey(name)) return false;
+        evict(name);
+        return true;
+    }
+
+    synchronized void clear() {
+        new ArrayList<>(entries.keySet()).forEach(this::evict);
+        notifyAll();
+    }
+
+    // most recently used first
+    synchronized List<String> names() {
+        List<String> names = new ArrayList<>(entries.keySet());
+        Collections.reverse(names);
+        return names;
+    }
+
+    private void evict(String name) {
+        Entry<T> entry = entries.remove(name);
+        if (entry != null) {
+            onEvict.accept(entry.value());
+        }
+    }
+
+    // sleeps until the oldest entry goes idle; exits when the cache is empty and is restarted by put
+    private synchronized void sweep() {
+        try {
+            while (!entries.isEmpty()) {
+                Map.Entry<String, Entry<T>> oldest = entries.entrySet().iterator().next();
+                long idle = System.nanoTime() - oldest.getValue().parkedAt();
+                if (idle >= idleNanos) {
+                    evict(oldest.getKey());
+                } else {
+                    wait(Math.max(1, (idleNanos - idle) / 1_000_000));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sweeper = null;
+        }
+    }
+}
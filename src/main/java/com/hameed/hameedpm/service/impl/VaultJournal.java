@@ -0,0 +1,302 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.util.CryptoUtil;
+import com.hameed.hameedpm.util.Metrics;
+import com.hameed.hameedpm.util.VaultFileUtil;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Append-only journal of credential mutations kept next to the vault manifest.
+// Layout: header (magic, version, manifest generation, iv, tag) then entries of
+// [int length][long sequence][iv][ciphertext]. The header tag is an AES-GCM tag over the header
+// fields and the vault name, and each entry is AES-GCM encrypted on its own with the vault name,
+// generation and sequence number as associated data. Entries therefore cannot be edited, reordered,
+// dropped from the middle or spliced in from another journal, and a journal cannot be passed off as
+// another generation's. Sequences start at 0 in every journal; a torn entry at the tail (crash
+// mid-append, or a tail of zeros the file grew by) is dropped on replay, but only when nothing
+// follows it: a damaged length in the middle of the journal is reported rather than taken for a
+// tear, which would drop every later entry.
+class VaultJournal implements Closeable {
+
+    static final byte OP_PUT    = 1;
+    static final byte OP_DELETE = 2;
+
+    private static final int MAGIC       = 0x484A524E; // "HJRN"
+    private static final int VERSION     = 2;
+    private static final int IV_LENGTH   = 12;
+    private static final int TAG_LENGTH  = 16;
+    private static final int FIELDS_SIZE = 4 + 4 + 8;
+    private static final int HEADER_SIZE = FIELDS_SIZE + IV_LENGTH + TAG_LENGTH;
+    // sequence, iv and the ciphertext of at least the op byte
+    private static final int MIN_ENTRY_LENGTH = 8 + IV_LENGTH + 1 + TAG_LENGTH;
+
+    record Entry(byte op, byte[] payload) {}
+
+    record Replay(List<Entry> entries, long lastSequence) {}
+
+    private final FileChannel channel;
+    private final String vaultName;
+    private final long generation;
+    private long nextSequence;
+
+    private VaultJournal(FileChannel channel, String vaultName, long generation, long nextSequence) {
+        this.channel = channel;
+        this.vaultName = vaultName;
+        this.generation = generation;
+        this.nextSequence = nextSequence;
+    }
+
+    static VaultJournal open(Path path, String vaultName, long generation, long nextSequence) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new VaultJournal(channel, vaultName, generation, nextSequence);
+    }
+
+    // writes a fresh journal for the given manifest generation, optionally seeded with entries,
+    // which are numbered from 0
+    static void create(Path path, SecretKey key, String vaultName, long generation, List<Entry> entries) throws Exception {
+        Path staging = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            VaultFileUtil.restrictToOwner(staging);
+            ByteBuffer fields = ByteBuffer.allocate(FIELDS_SIZE).putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+            byte[] iv  = CryptoUtil.generateRandomBytes(IV_LENGTH);
+            byte[] tag = CryptoUtil.encrypt(key, new byte[0], iv, headerAad(fields.duplicate(), vaultName));
+            writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).put(fields).put(iv).put(tag).flip());
+            new VaultJournal(channel, vaultName, generation, 0).write(key, entries);
+            channel.force(true);
+        }
+        VaultFileUtil.moveAtomically(staging, path);
+    }
+
+    // generation recorded in the header, or -1 if the file is missing or not a journal; not
+    // authenticated, so only good for telling which journal to authenticate
+    static long peekGeneration(Path path) throws IOException {
+        if (!Files.exists(path)) return -1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FIELDS_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            if (header.hasRemaining()) return -1;
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return -1;
+            return header.getLong();
+        }
+    }
+
+    // generation recorded in the header, once the header tag checks out for this vault and key
+    static long readGeneration(Path path, SecretKey key, String vaultName) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            return verifyHeader(header.flip(), key, vaultName);
+        }
+    }
+
+    // with repair off the file is only read: a torn tail is skipped instead of truncated
+    static Replay replay(Path path, SecretKey key, String vaultName, long generation, boolean repair) throws Exception {
+        List<Entry> entries;
+        try (FileChannel channel = repair
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) { }
+            data.flip();
+            if (verifyHeader(data, key, vaultName) != generation) {
+                throw new SecurityException("Vault journal belongs to another generation — possible tampering detected.");
+            }
+
+            entries = new VaultJournal(channel, vaultName, generation, 0).readEntries(key, data);
+            if (repair && data.position() < channel.size()) {
+                channel.truncate(data.position());
+                channel.force(true);
+            }
+        }
+        return new Replay(entries, entries.size() - 1L);
+    }
+
+    void append(SecretKey key, List<Entry> entries) throws Exception {
+        if (entries.isEmpty()) return;
+        write(key, entries);
+        channel.force(false);
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    // entries written after the given offset, used to carry them over into the next journal
+    List<Entry> readFrom(SecretKey key, long offset) throws Exception {
+        long start = Math.max(offset, HEADER_SIZE);
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.max(0, channel.size() - start));
+        long position = start;
+        while (tail.hasRemaining()) {
+            int read = channel.read(tail, position);
+            if (read < 0) break;
+            position += read;
+        }
+        tail.flip();
+        // the first entry after the offset carries whatever sequence it was appended with
+        long first = tail.remaining() >= 12 ? tail.getLong(4) : 0;
+        return new VaultJournal(null, vaultName, generation, first).readEntries(key, tail);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(SecretKey key, List<Entry> entries) throws Exception {
+        if (entries.isEmpty()) return;
+
+        Metrics.Sample encryptSample = Metrics.start();
+        List<byte[]> records = new ArrayList<>(entries.size());
+        int total = 0;
+        for (Entry entry : entries) {
+            long sequence = nextSequence++;
+            byte[] plaintext = new byte[entry.payload().length + 1];
+            plaintext[0] = entry.op();
+            System.arraycopy(entry.payload(), 0, plaintext, 1, entry.payload().length);
+
+            byte[] iv = CryptoUtil.generateRandomBytes(IV_LENGTH);
+            byte[] ciphertext = CryptoUtil.encrypt(key, plaintext, iv, entryAad(sequence));
+            Arrays.fill(plaintext, (byte) 0);
+
+            byte[] record = ByteBuffer.allocate(4 + 8 + IV_LENGTH + ciphertext.length)
+                    .putInt(8 + IV_LENGTH + ciphertext.length)
+                    .putLong(sequence)
+                    .put(iv)
+                    .put(ciphertext)
+                    .array();
+            records.add(record);
+            total += record.length;
+        }
+
+        Metrics.stop("persist.encrypt", encryptSample);
+
+        Metrics.Sample writeSample = Metrics.start();
+        ByteBuffer batch = ByteBuffer.allocate(total);
+        records.forEach(batch::put);
+        writeFully(channel, batch.flip());
+        Metrics.stop("persist.write", writeSample, total);
+    }
+
+    // decrypts entries from data, which must continue at nextSequence, stopping before a torn tail;
+    // data is left positioned after the last whole entry
+    private List<Entry> readEntries(SecretKey key, ByteBuffer data) throws Exception {
+        List<Entry> entries = new ArrayList<>();
+        int validLength = data.position();
+        while (data.remaining() >= 4) {
+            int length = data.getInt();
+            if (isZeroFrom(data, data.position() - 4)) {
+                break;  // the file grew but the append never reached the disk
+            }
+            if (length < MIN_ENTRY_LENGTH) {
+                throw new SecurityException("Vault journal entry " + nextSequence + " has an invalid length — possible tampering detected.");
+            }
+            if (length > data.remaining()) {
+                if (followedByEntry(key, data)) {
+                    throw new SecurityException("Vault journal entry " + nextSequence + " is damaged and later entries follow it.");
+                }
+                break;  // torn tail
+            }
+
+            long sequence = data.getLong();
+            byte[] iv = new byte[IV_LENGTH];
+            data.get(iv);
+            byte[] ciphertext = new byte[length - 8 - IV_LENGTH];
+            data.get(ciphertext);
+
+            if (sequence != nextSequence) {
+                throw new SecurityException("Vault journal is out of order — possible tampering detected.");
+            }
+            byte[] plaintext;
+            try {
+                plaintext = CryptoUtil.decrypt(key, ciphertext, iv, entryAad(sequence));
+            } catch (AEADBadTagException ex) {
+                throw new SecurityException("Vault journal entry " + sequence + " failed integrity check.");
+            }
+            entries.add(new Entry(plaintext[0], Arrays.copyOfRange(plaintext, 1, plaintext.length)));
+            Arrays.fill(plaintext, (byte) 0);
+            nextSequence++;
+            validLength = data.position();
+        }
+        data.position(validLength);
+        return entries;
+    }
+
+    // whether a whole entry with the sequence after nextSequence starts anywhere in the rest of data,
+    // which a crash mid-append cannot leave behind a torn one
+    private boolean followedByEntry(SecretKey key, ByteBuffer data) throws Exception {
+        long next = nextSequence + 1;
+        for (int at = data.position() + 4; at + MIN_ENTRY_LENGTH <= data.limit(); at++) {
+            if (data.getLong(at) != next) continue;
+            int length = data.getInt(at - 4);
+            if (length < MIN_ENTRY_LENGTH || length > data.limit() - at) continue;
+            byte[] iv = new byte[IV_LENGTH];
+            byte[] ciphertext = new byte[length - 8 - IV_LENGTH];
+            data.get(at + 8, iv).get(at + 8 + IV_LENGTH, ciphertext);
+            try {
+                Arrays.fill(CryptoUtil.decrypt(key, ciphertext, iv, entryAad(next)), (byte) 0);
+                return true;
+            } catch (AEADBadTagException ex) {
+                // eight bytes that happen to read as the sequence
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroFrom(ByteBuffer data, int from) {
+        for (int at = from; at < data.limit(); at++) {
+            if (data.get(at) != 0) return false;
+        }
+        return true;
+    }
+
+    private byte[] entryAad(long sequence) {
+        byte[] name = vaultName.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(8 + 8 + name.length).putLong(generation).putLong(sequence).put(name).array();
+    }
+
+    // checks magic, version and tag of the header at the start of data and returns its generation
+    private static long verifyHeader(ByteBuffer data, SecretKey key, String vaultName) throws Exception {
+        if (data.remaining() < HEADER_SIZE) {
+            throw new SecurityException("Vault journal header is truncated — possible tampering detected.");
+        }
+        ByteBuffer fields = data.slice(data.position(), FIELDS_SIZE);
+        if (fields.getInt(0) != MAGIC || fields.getInt(4) != VERSION) {
+            throw new SecurityException("Not a vault journal, or written by an unsupported version.");
+        }
+        byte[] iv  = new byte[IV_LENGTH];
+        byte[] tag = new byte[TAG_LENGTH];
+        data.position(data.position() + FIELDS_SIZE).get(iv).get(tag);
+        try {
+            CryptoUtil.decrypt(key, tag, iv, headerAad(fields, vaultName));
+        } catch (AEADBadTagException ex) {
+            throw new SecurityException("Vault journal header failed integrity check.");
+        }
+        return fields.getLong(8);
+    }
+
+    private static byte[] headerAad(ByteBuffer fields, String vaultName) {
+        byte[] name = vaultName.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(FIELDS_SIZE + name.length).put(fields.duplicate().position(0)).put(name).array();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -1,74 +1,430 @@
 package com.hameed.hameedpm.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hameed.hameedpm.exception.CommitOutcomeUnknownException;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.KdfRewrap;
 import com.hameed.hameedpm.model.Vault;
 import com.hameed.hameedpm.model.VaultFile;
+import com.hameed.hameedpm.model.VaultSegment;
 import com.hameed.hameedpm.service.IVaultService;
+import com.hameed.hameedpm.util.CredentialSealer;
 import com.hameed.hameedpm.util.CryptoUtil;
+import com.hameed.hameedpm.util.Metrics;
+import com.hameed.hameedpm.util.VaultCodec;
 import com.hameed.hameedpm.util.VaultFileUtil;
+import com.hameed.hameedpm.util.VaultJsonCodec;
 import com.hameed.hameedpm.util.StringUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 @Service
+@DependsOn("metricsConfig")  // metrics are switched on before the first unlock and dumped after the last save
 public class VaultService implements IVaultService {
 
-    private boolean vaultUnlocked;
-    private final ObjectMapper mapper;
+    // read by lookups on any thread; changed only on the writer path
+    private volatile boolean vaultUnlocked;
     private SecretKey vaultKey;
-    private Vault vault;
+    private volatile Vault vault;
+    private VaultFile vaultFile;  // manifest as last written to disk
+    private VaultJournal journal;
+
+    // the single writer path: every change to the vault, its save, and unlock/lock/switch run one at a
+    // time under this lock; a transaction holds it from begin to commit or rollback
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // guards vaultFile and journal, which the background compaction also swaps
+    private final Object persistLock = new Object();
+    private Thread compactionThread;
+    private volatile boolean fullCheckpointRequired;
+    private volatile long journalSize;
+
+    // open batch: persistVault is deferred until commitTransaction
+    private Vault.Savepoint transaction;
+
+    // set when write-behind is enabled: commands return once the change is queued
+    private final WriteBehindQueue writeBehind;
+
+    private final KdfPolicy kdfPolicy;
+    private final boolean readOnly;
+    private volatile Duration lastDeriveTime = Duration.ZERO;  // key derivation of the last unlock
+    private volatile KdfRewrap lastRewrap;  // re-wrap done by the last unlock, if any
+
+    // other unlocked vaults, switched back to without the KDF; the current vault is not in here
+    private final VaultCache<OpenVault> openVaults;
 
     private static final int IV_LENGTH        = 12;
     private static final int SIGNING_KEY_LENGTH = 32;
-    private static final int ITERATIONS       = 200_000;
     private static final int SALT_LENGTH      = 16;
+    private static final int SEGMENT_TARGET_SIZE = 256;  // credentials per segment before the vault is re-split
+    private static final long COMPACTION_THRESHOLD_BYTES = 1L << 20;  // journal size that triggers a checkpoint
+    private static final int JOURNAL_BATCH_LIMIT = 10_000;  // larger change sets (bulk loads) skip the journal
+    private static final int DEFAULT_MAX_OPEN_VAULTS = 4;
+    private static final Duration DEFAULT_VAULT_IDLE_TIMEOUT = Duration.ofMinutes(15);
+
+    // state captured on the mutating thread and folded into segments by a checkpoint
+    private record Snapshot(VaultFile base, List<Credential> credentials, Set<String> dirtyKeys,
+                            long journalOffset, boolean full) {}
+
+    // an unlocked vault set aside by a switch; everything in it has been written to disk
+    private record OpenVault(Vault vault, SecretKey key, VaultFile vaultFile, VaultJournal journal,
+                             Duration lastDeriveTime) {}
 
     public VaultService() {
-        this.mapper = new ObjectMapper();
-        mapper.findAndRegisterModules();
+        this(false, Duration.ZERO, Duration.ZERO, KdfPolicy.fixed(KdfPolicy.DEFAULT_ITERATIONS),
+                DEFAULT_MAX_OPEN_VAULTS, DEFAULT_VAULT_IDLE_TIMEOUT, false);
+    }
+
+    // A service that only reads vaults, for one-shot lookups: unlocking leaves every file as it is
+    // (the journal is replayed in memory, without promoting a staged journal, replacing an old one or
+    // truncating a torn tail), the KDF cost is never re-wrapped whatever it is, no other vault is kept
+    // open, and any attempt to save fails.
+    public static VaultService readOnly() {
+        return new VaultService(false, Duration.ZERO, Duration.ZERO,
+                new KdfPolicy(false, Duration.ZERO, 1, Integer.MAX_VALUE, 1.0), 1, Duration.ZERO, true);
+    }
+
+    @Autowired
+    public VaultService(@Value("${hameed-pm.persistence.write-behind:false}") boolean writeBehind,
+                        @Value("${hameed-pm.persistence.write-behind-debounce:200ms}") Duration writeBehindDebounce,
+                        @Value("${hameed-pm.persistence.write-behind-max-delay:1s}") Duration writeBehindMaxDelay,
+                        @Value("${hameed-pm.kdf.calibrate:true}") boolean kdfCalibrate,
+                        @Value("${hameed-pm.kdf.target-derive-time:500ms}") Duration kdfTargetDeriveTime,
+                        @Value("${hameed-pm.kdf.min-iterations:200000}") int kdfMinIterations,
+                        @Value("${hameed-pm.kdf.max-iterations:5000000}") int kdfMaxIterations,
+                        @Value("${hameed-pm.kdf.rewrap-tolerance:2.0}") double kdfRewrapTolerance,
+                        @Value("${hameed-pm.vaults.max-open:4}") int maxOpenVaults,
+                        @Value("${hameed-pm.vaults.idle-timeout:15m}") Duration vaultIdleTimeout) {
+        this(writeBehind, writeBehindDebounce, writeBehindMaxDelay, new KdfPolicy(kdfCalibrate, kdfTargetDeriveTime,
+                kdfMinIterations, kdfMaxIterations, kdfRewrapTolerance), maxOpenVaults, vaultIdleTimeout, false);
+    }
+
+    private VaultService(boolean writeBehind, Duration writeBehindDebounce, Duration writeBehindMaxDelay,
+                         KdfPolicy kdfPolicy, int maxOpenVaults, Duration vaultIdleTimeout, boolean readOnly) {
+        if (maxOpenVaults < 1) {
+            throw new IllegalArgumentException("hameed-pm.vaults.max-open must be at least 1");
+        }
+        this.writeBehind = writeBehind ? new WriteBehindQueue(writeBehindDebounce, writeBehindMaxDelay, this::appendEntries) : null;
+        this.kdfPolicy = kdfPolicy;
+        this.readOnly = readOnly;
+        this.openVaults = new VaultCache<>(maxOpenVaults - 1, vaultIdleTimeout, this::wipe);
+    }
+
+    @Override
+    public void mutate(Mutation mutation) throws Exception {
+        writeLock.lock();
+        try {
+            mutation.apply(getCurrentVault());
+            persistVault();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void persistVault() throws Exception {
-        String vaultFileJson = VaultFileUtil.loadVaultFile(vault.getName());
-        VaultFile vaultFile  = mapper.readValue(vaultFileJson, VaultFile.class);
+        writeLock.lock();
+        try {
+            if (transaction != null) return;  // saved once by commitTransaction
+
+            Metrics.Sample sample = Metrics.start();
+            try {
+                persistChanges();
+            } finally {
+                Metrics.stop("persist", sample);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void persistChanges() throws Exception {
+        requireWritable();
+        int requiredSegments = requiredSegmentCount(vault.credentialCount());
+
+        if (journal == null || fullCheckpointRequired
+                || vaultFile.getFormatVersion() != VaultFile.FORMAT_SEGMENTED
+                || requiredSegments > vaultFile.getSegmentCount()
+                || vault.getPendingKeys().size() > JOURNAL_BATCH_LIMIT) {
+            // first save after a legacy unlock, the vault outgrew its segments, or a bulk load
+            // would only bloat the journal: checkpoint right away
+            try {
+                flush();
+            } catch (Exception ex) {
+                // a failed background batch is covered: the checkpoint below writes the whole vault
+            }
+            awaitCompaction();
+            checkpoint(takeSnapshot());
+            return;
+        }
+
+        // entries are encoded here, on the mutating thread; encryption and fsync may happen later
+        List<VaultJournal.Entry> entries = pendingEntries();
+        vault.clearPending();
+
+        if (writeBehind != null) {
+            writeBehind.submit(entries);
+        } else {
+            appendEntries(entries);
+        }
 
-        byte[] newIv      = CryptoUtil.generateRandomBytes(IV_LENGTH);
-        byte[] plaintext  = mapper.writerWithDefaultPrettyPrinter()
-                .writeValueAsString(vault)
-                .getBytes(StandardCharsets.UTF_8);
-        byte[] ciphertext = CryptoUtil.encrypt(vaultKey, plaintext, newIv);
-        byte[] hash       = CryptoUtil.computeHmac(
-                vault.getSigningKey(),
-                vaultFile.getSalt(),      // already byte[]
-                newIv,
-                vaultFile.getIterations(),
-                ciphertext);
+        if (journalSize >= COMPACTION_THRESHOLD_BYTES) {
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    public void flush() throws Exception {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    // writers on other threads wait until the transaction ends; lookups carry on. Earlier changes
+    // still queued for the background writer are written first, so their failure cannot fail the commit.
+    @Override
+    public void beginTransaction() {
+        writeLock.lock();
+        try {
+            if (transaction != null) {
+                throw new IllegalStateException("A transaction is already open");
+            }
+            try {
+                flush();
+            } catch (Exception ex) {
+                // a failed background batch is covered: the commit checkpoints the whole vault
+            }
+            transaction = getCurrentVault().savepoint();
+        } catch (RuntimeException ex) {
+            writeLock.unlock();
+            throw ex;
+        }
+    }
+
+    // a commit that fails is rolled back on disk as well as in memory; if that fails too, it throws
+    // CommitOutcomeUnknownException, since part of the transaction may replay on the next unlock
+    @Override
+    public void commitTransaction() throws Exception {
+        Vault.Savepoint savepoint = requireTransaction();
+        try {
+            transaction = null;
+            persistVault();
+            flush();
+        } catch (Exception ex) {
+            vault.rollbackTo(savepoint);
+            checkpointRolledBack(ex);
+            throw ex;
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-        vaultFile.setIv(newIv);
-        vaultFile.setCiphertext(ciphertext);
-        vaultFile.setHash(hash);
+    // Part of a failed commit may be on disk: entries appended before the fsync failed, or a manifest
+    // saved before its journal was promoted, and either would replay on the next unlock. A full
+    // checkpoint of the rolled-back vault replaces the manifest, every segment and the journal.
+    private void checkpointRolledBack(Exception cause) {
+        if (readOnly) return;  // nothing can have been written
+        try {
+            try {
+                flush();
+            } catch (Exception ex) {
+                // entries of the failed commit; the checkpoint below starts a new journal without them
+            }
+            awaitCompaction();
+            fullCheckpointRequired = true;
+            checkpoint(takeSnapshot());
+        } catch (Exception ex) {
+            cause.addSuppressed(ex);
+            throw new CommitOutcomeUnknownException("Saving the transaction failed (" + cause.getMessage()
+                    + ") and so did restoring the vault on disk; some of its changes may be saved.", cause);
+        }
+    }
 
-        VaultFileUtil.saveVaultFile(
-                mapper.writerWithDefaultPrettyPrinter().writeValueAsString(vaultFile),
-                vault.getName());
+    @Override
+    public void rollbackTransaction() {
+        Vault.Savepoint savepoint = requireTransaction();
+        try {
+            transaction = null;
+            vault.rollbackTo(savepoint);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
+    private Vault.Savepoint requireTransaction() {
+        if (transaction == null || !writeLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("No transaction is open");
+        }
+        return transaction;
+    }
+
+    // locks the current vault and every cached one
+    @Override
+    public void lockVault() throws Exception {
+        writeLock.lock();
+        try {
+            openVaults.clear();
+            lockCurrentVault();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void lockCurrentVault() throws Exception {
+        flush();
+        awaitCompaction();
+        synchronized (persistLock) {
+            closeJournal();
+            if (vault != null) {
+                vault.wipeKeys();
+            }
+            CryptoUtil.destroyKey(vaultKey);
+            this.vault         = null;
+            this.transaction   = null;
+            this.vaultFile     = null;
+            this.vaultKey      = null;
+            this.vaultUnlocked = false;
+        }
+    }
+
+    @Override
+    public String getCurrentVaultName() {
+        Vault current = vault;
+        return current != null ? current.getName() : null;
+    }
+
+    @Override
+    public List<String> getOpenVaults() {
+        List<String> names = new ArrayList<>();
+        String current = getCurrentVaultName();
+        if (current != null) names.add(current);
+        names.addAll(openVaults.names());
+        return names;
+    }
+
+    @Override
+    public boolean switchVault(String vaultName) throws Exception {
+        writeLock.lock();
+        try {
+            return switchTo(vaultName);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean switchTo(String vaultName) throws Exception {
+        StringUtil.requireSafeName(vaultName, "vaultName");
+        if (vaultName.equals(getCurrentVaultName())) return true;
+
+        // taken out first, so parking the current vault cannot evict it
+        OpenVault next = openVaults.take(vaultName);
+        if (next == null) return false;
+        try {
+            parkCurrentVault();
+        } catch (Exception ex) {
+            openVaults.put(vaultName, next);
+            throw ex;
+        }
+        synchronized (persistLock) {
+            this.vault         = next.vault();
+            this.transaction   = null;
+            this.vaultFile     = next.vaultFile();
+            this.journal       = next.journal();
+            this.journalSize   = next.journal() != null ? next.journal().size() : 0;
+            this.vaultKey      = next.key();
+            this.vaultUnlocked = true;
+        }
+        fullCheckpointRequired = false;
+        lastDeriveTime = next.lastDeriveTime();
+        Metrics.increment("vault.switch");
+        return true;
+    }
+
+    @Override
+    public void closeVault(String vaultName) throws Exception {
+        StringUtil.requireSafeName(vaultName, "vaultName");
+        writeLock.lock();
+        try {
+            if (vaultName.equals(getCurrentVaultName())) {
+                lockCurrentVault();
+                // fall back to the most recently used cached vault, if any
+                List<String> cached = openVaults.names();
+                if (!cached.isEmpty()) switchTo(cached.get(0));
+            } else if (!openVaults.close(vaultName)) {
+                throw new IllegalArgumentException("Vault is not open: " + vaultName);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // moves the current vault into the cache; it is saved first, so an eviction loses nothing
+    private void parkCurrentVault() throws Exception {
+        if (!vaultUnlocked) return;
+        if (transaction != null) {
+            throw new IllegalStateException("Commit or roll back the open transaction before switching vaults");
+        }
+        if (fullCheckpointRequired || !vault.getPendingKeys().isEmpty()) {
+            persistChanges();
+        }
+        flush();
+        awaitCompaction();
+        synchronized (persistLock) {
+            openVaults.put(vault.getName(), new OpenVault(vault, vaultKey, vaultFile, journal, lastDeriveTime));
+            this.vault         = null;
+            this.vaultFile     = null;
+            this.journal       = null;
+            this.journalSize   = 0;
+            this.vaultKey      = null;
+            this.vaultUnlocked = false;
+        }
+    }
+
+    private void wipe(OpenVault openVault) {
+        try {
+            if (openVault.journal() != null) openVault.journal().close();
+        } catch (IOException ex) {
+            // nothing is pending in a cached vault's journal
+        }
+        openVault.vault().wipeKeys();
+        CryptoUtil.destroyKey(openVault.key());
+        Metrics.increment("vault.evict");
+    }
 
     public Vault getCurrentVault() {
-        if (!vaultUnlocked) {
+        Vault current = vault;
+        if (current == null) {
             throw new IllegalStateException("Vault is locked");
         }
-        return vault;
+        return current;
     }
 
     @Override
@@ -78,11 +434,21 @@ public class VaultService implements IVaultService {
 
     @Override
     public boolean unlockVault(String vaultName, char[] password) {
+        writeLock.lock();
+        try {
+            return unlock(vaultName, password);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean unlock(String vaultName, char[] password) {
+        Metrics.Sample unlockSample = Metrics.start();
+        lastRewrap = null;
         try {
             StringUtil.requireSafeName(vaultName, "vaultName");
 
-            VaultFile vaultFile = mapper.readValue(
-                    VaultFileUtil.loadVaultFile(vaultName), VaultFile.class);
+            VaultFile vaultFile = decodeVaultFile(VaultFileUtil.loadVaultFile(vaultName));
 
             // all fields are already byte[] — no decoding needed
             int    iterations = vaultFile.getIterations();
@@ -91,21 +457,91 @@ public class VaultService implements IVaultService {
             byte[] ciphertext = vaultFile.getCiphertext();
             byte[] storedHash = vaultFile.getHash();
 
-            byte[]    keyBytes = CryptoUtil.deriveKey(password, salt, iterations);
-            SecretKey key      = CryptoUtil.keyFromBytes(keyBytes);
+            KdfPolicy.warmUp();
+            Metrics.Sample deriveSample = Metrics.start();
+            long      deriveStart = System.nanoTime();
+            byte[]    keyBytes    = CryptoUtil.deriveKey(password, salt, iterations);
+            Duration  deriveTime  = Duration.ofNanos(System.nanoTime() - deriveStart);
+            Metrics.stop("unlock.derive", deriveSample);
+            SecretKey key         = CryptoUtil.keyFromBytes(keyBytes);
             wipe(keyBytes);
 
+            Metrics.Sample decryptSample = Metrics.start();
             byte[] plaintext     = CryptoUtil.decrypt(key, ciphertext, iv);
-            Vault  decryptedVault = mapper.readValue(plaintext, Vault.class);
+            Metrics.stop("unlock.decrypt", decryptSample);
+            Vault  decryptedVault = VaultCodec.isBinaryPayload(plaintext)
+                    ? VaultCodec.decodeHeader(plaintext)
+                    : VaultJsonCodec.readVault(plaintext);
+            wipe(plaintext);
 
-            integrityCheck(storedHash, decryptedVault.getSigningKey(), salt, iv, iterations, ciphertext);
+            if (vaultFile.getFormatVersion() == VaultFile.FORMAT_SEGMENTED) {
+                // the manifest binds every segment digest, so verify it before reading any segment
+                Metrics.Sample hmacSample = Metrics.start();
+                integrityCheck(storedHash, decryptedVault.getSigningKey(), manifestBytes(vaultFile,
+                        vaultFile.getContainerVersion() >= VaultCodec.SIGNED_DERIVE_TIME_VERSION));
+                Metrics.stop("unlock.hmac", hmacSample);
+                decryptedVault.setCredentials(readSegments(vaultName, vaultFile, key));
+            } else {
+                Metrics.Sample hmacSample = Metrics.start();
+                integrityCheck(storedHash, decryptedVault.getSigningKey(), salt, iv, iterations, ciphertext);
+                Metrics.stop("unlock.hmac", hmacSample);
+                decryptedVault.rebuildIndex();
+            }
 
-            this.vault         = decryptedVault;
-            this.vaultKey      = key;
-            this.vaultUnlocked = true;
+            // vaults written before records were sealed get a record key now; their credentials are
+            // sealed in memory and the next save rewrites header and segments
+            boolean unsealed = decryptedVault.getRecordKey() == null;
+            if (unsealed) {
+                decryptedVault.setRecordKey(CryptoUtil.generateRandomBytes(CredentialSealer.RECORD_KEY_LENGTH));
+            }
+            unsealed |= decryptedVault.sealAll() > 0;
+
+            // a different vault is set aside so switching back skips the KDF; a cached copy of this
+            // one is superseded by what was just read from disk
+            openVaults.close(vaultName);
+            if (vaultUnlocked && !vault.getName().equals(vaultName)) {
+                parkCurrentVault();
+            } else {
+                flush();
+                awaitCompaction();
+                synchronized (persistLock) {
+                    closeJournal();
+                }
+            }
+            VaultJournal replayedJournal = vaultFile.getFormatVersion() == VaultFile.FORMAT_SEGMENTED
+                    ? replayJournal(vaultName, vaultFile, key, decryptedVault)
+                    : null;  // legacy vaults get a journal with their first checkpoint
+
+            synchronized (persistLock) {
+                this.vault         = decryptedVault;
+                this.transaction   = null;
+                this.vaultFile     = vaultFile;
+                this.journal       = replayedJournal;
+                this.journalSize   = replayedJournal != null ? replayedJournal.size() : 0;
+                this.vaultKey      = key;
+                this.vaultUnlocked = true;
+            }
+            if (unsealed) fullCheckpointRequired = true;
+            lastDeriveTime = deriveTime;
+            Metrics.stop("unlock", unlockSample);
+
+            // the password is known to be right here, so a cost that drifted out of the policy window
+            // (older vault, different host, changed target) is fixed by re-wrapping under a new salt
+            if (kdfPolicy.needsRewrap(iterations, deriveTime)) {
+                KdfPolicy.Cost cost = kdfPolicy.rewrapCost(iterations, deriveTime);
+                String failure = null;
+                try {
+                    writeVault(vaultName, password, cost);
+                } catch (Exception ex) {
+                    // the vault is unlocked either way; the next unlock tries again
+                    failure = ex.getMessage();
+                }
+                lastRewrap = new KdfRewrap(iterations, cost.iterations(), cost.deriveMillis(), failure);
+            }
             return true;
 
         } catch (BadPaddingException | SecurityException ex) {
+            Metrics.increment("unlock.failure");
             return false;
         } catch (Exception ex) {
             System.out.println("Unexpected error during vault unlock: " + ex.getMessage());
@@ -113,26 +549,67 @@ public class VaultService implements IVaultService {
         }
     }
 
+    @Override
+    public Duration getLastDeriveTime() {
+        return lastDeriveTime;
+    }
+
+    @Override
+    public Optional<KdfRewrap> getLastRewrap() {
+        return Optional.ofNullable(lastRewrap);
+    }
+
+    @Override
+    public int getKdfIterations() {
+        return getCurrentVaultFile().getIterations();
+    }
+
     @Override
     public boolean vaultExists() {
-        return VaultFileUtil.vaultFileExists(VaultFileUtil.DEFAULT_VAULT_NAME);
+        return vaultExists(VaultFileUtil.DEFAULT_VAULT_NAME);
+    }
+
+    @Override
+    public boolean vaultExists(String vaultName) {
+        return VaultFileUtil.vaultFileExists(vaultName);
     }
 
     @Override
     public void createEncryptedVault(String vaultName, char[] password) throws Exception {
-        byte[] iv         = null;
+        writeLock.lock();
+        try {
+            StringUtil.requireSafeName(vaultName, "vaultName");
+            StringUtil.requireValidPassword(password);
+            // a new vault other than the current one; the current vault stays open in the cache
+            if (vaultUnlocked && !vault.getName().equals(vaultName)) {
+                parkCurrentVault();
+            }
+            openVaults.close(vaultName);
+            writeVault(vaultName, password, kdfPolicy.initialCost());
+        } catch (Exception e) {
+            throw new Exception("Failed to create vault: " + e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+            if (password != null) Arrays.fill(password, '\0');
+        }
+    }
+
+    // writes the vault under a key derived from password with the given cost: a new vault, a password
+    // reset, or a re-wrap of the unlocked vault; every segment is re-encrypted under the new key
+    private void writeVault(String vaultName, char[] password, KdfPolicy.Cost cost) throws Exception {
+        requireWritable();
         byte[] signingKey = null;
         byte[] salt       = null;
         byte[] keyBytes   = null;
 
         try {
-            StringUtil.requireSafeName(vaultName, "vaultName");
-            StringUtil.requireValidPassword(password);
+            // queued entries belong to the old key, and an in-flight compaction would prune the segments written below
+            flush();
+            awaitCompaction();
 
-            iv         = CryptoUtil.generateRandomBytes(IV_LENGTH);
             signingKey = CryptoUtil.generateRandomBytes(SIGNING_KEY_LENGTH);
             salt       = CryptoUtil.generateRandomBytes(SALT_LENGTH);
-            keyBytes   = CryptoUtil.deriveKey(password, salt, ITERATIONS);
+            keyBytes   = CryptoUtil.deriveKey(password, salt, cost.iterations());
 
             SecretKey key = CryptoUtil.keyFromBytes(keyBytes);
 
@@ -140,39 +617,418 @@ public class VaultService implements IVaultService {
             initialVault.setName(vaultName);
             initialVault.setSigningKey(Arrays.copyOf(signingKey, signingKey.length));
 
-            // Password reset: preserve existing credentials; new vault: empty credentials
+            // Password reset: preserve existing credentials, which stay sealed under the same record key;
+            // new vault: empty credentials and a fresh record key
             if (vault != null && vaultUnlocked) {
-                initialVault.setCredentials(new ArrayList<>(vault.getCredentials()));
+                initialVault.setRecordKey(vault.getRecordKey());
+                initialVault.setCredentials(vault.getCredentials());
             } else {
+                initialVault.setRecordKey(CryptoUtil.generateRandomBytes(CredentialSealer.RECORD_KEY_LENGTH));
                 initialVault.setCredentials(new ArrayList<>());
             }
 
-            byte[] plaintext  = mapper.writeValueAsBytes(initialVault);
-            byte[] ciphertext = CryptoUtil.encrypt(key, plaintext, iv);
-            byte[] hash       = CryptoUtil.computeHmac(signingKey, salt, iv, ITERATIONS, ciphertext);
-
-            // all byte[] — Jackson encodes to Base64 in JSON automatically
-            VaultFile vaultFile = new VaultFile(ITERATIONS, salt, iv, ciphertext, hash);
+            VaultFile newVaultFile = new VaultFile();
+            newVaultFile.setFormatVersion(VaultFile.FORMAT_SEGMENTED);
+            newVaultFile.setIterations(cost.iterations());
+            newVaultFile.setDeriveMillis(cost.deriveMillis());
+            newVaultFile.setSalt(Arrays.copyOf(salt, salt.length));
+            newVaultFile.setGeneration(vaultFile != null ? vaultFile.getGeneration() : 0);
 
-            VaultFileUtil.saveVaultFile(
-                    mapper.writerWithDefaultPrettyPrinter().writeValueAsString(vaultFile),
-                    vaultName);
+            int segmentCount = requiredSegmentCount(initialVault.getCredentials().size());
+            newVaultFile.setSegmentCount(segmentCount);
+            writeHeader(initialVault, newVaultFile, key);
+            writeSegments(vaultName, initialVault.getCredentials(), newVaultFile, key, allSegments(segmentCount));
 
-            this.vaultKey      = key;
-            this.vault         = initialVault;
-            this.vaultUnlocked = true;
+            // a re-keyed vault starts with an empty journal; entries under the old key are already folded in
+            synchronized (persistLock) {
+                closeJournal();
+                this.journal       = commitManifest(initialVault, newVaultFile, key, List.of());
+                this.journalSize   = journal.size();
+                this.vaultKey      = key;
+                this.vault         = initialVault;
+                this.vaultFile     = newVaultFile;
+                this.vaultUnlocked = true;
+            }
+            fullCheckpointRequired = false;
 
-        } catch (Exception e) {
-            throw new Exception("Failed to create vault: " + e.getMessage(), e);
         } finally {
             wipe(keyBytes);
             wipe(salt);
-            wipe(iv);
             wipe(signingKey);
-            if (password != null) Arrays.fill(password, '\0');
         }
     }
 
+    private VaultFile getCurrentVaultFile() {
+        synchronized (persistLock) {
+            if (!vaultUnlocked) {
+                throw new IllegalStateException("Vault is locked");
+            }
+            return vaultFile;
+        }
+    }
+
+    // the header is the vault without credentials: name, signing key and record key
+    private void writeHeader(Vault source, VaultFile target, SecretKey key) throws Exception {
+        Vault header = new Vault(source.getName(), new ArrayList<>());
+        header.setSigningKey(source.getSigningKey());
+        header.setRecordKey(source.getRecordKey());
+
+        byte[] iv        = CryptoUtil.generateRandomBytes(IV_LENGTH);
+        Metrics.Sample serializeSample = Metrics.start();
+        byte[] plaintext = VaultCodec.encodeHeader(header);
+        Metrics.stop("persist.serialize", serializeSample);
+        Metrics.Sample encryptSample = Metrics.start();
+        target.setIv(iv);
+        target.setCiphertext(CryptoUtil.encrypt(key, plaintext, iv));
+        Metrics.stop("persist.encrypt", encryptSample);
+        wipe(plaintext);
+    }
+
+    private void writeSegments(String vaultName, List<Credential> credentials, VaultFile target,
+                               SecretKey key, Set<Integer> indices) throws Exception {
+        Map<Integer, List<Credential>> groups = new HashMap<>();
+        indices.forEach(index -> groups.put(index, new ArrayList<>()));
+        for (Credential credential : credentials) {
+            List<Credential> group = groups.get(
+                    segmentOf(Vault.indexKey(credential.getServiceName()), target.getSegmentCount()));
+            if (group != null) group.add(credential);
+        }
+
+        Map<Integer, VaultSegment> segments = target.getSegments().stream()
+                .collect(Collectors.toMap(VaultSegment::getIndex, segment -> segment));
+
+        for (Map.Entry<Integer, List<Credential>> group : groups.entrySet()) {
+            byte[] iv         = CryptoUtil.generateRandomBytes(IV_LENGTH);
+            Metrics.Sample serializeSample = Metrics.start();
+            byte[] plaintext  = VaultCodec.encodeCredentials(group.getValue());
+            Metrics.stop("persist.serialize", serializeSample);
+            Metrics.Sample encryptSample = Metrics.start();
+            byte[] ciphertext = CryptoUtil.encrypt(key, plaintext, iv);
+            Metrics.stop("persist.encrypt", encryptSample);
+            wipe(plaintext);
+
+            Metrics.Sample writeSample = Metrics.start();
+            VaultFileUtil.saveSegment(vaultName,
+                    VaultFileUtil.segmentFileName(group.getKey(), iv), ciphertext);
+            Metrics.stop("persist.write", writeSample, ciphertext.length);
+            segments.put(group.getKey(), new VaultSegment(group.getKey(), iv, CryptoUtil.sha256(ciphertext)));
+        }
+
+        VaultFileUtil.syncSegments(vaultName);
+
+        target.setSegments(segments.values().stream()
+                .sorted(Comparator.comparingInt(VaultSegment::getIndex))
+                .collect(Collectors.toCollection(ArrayList::new)));
+    }
+
+    private List<Credential> readSegments(String vaultName, VaultFile source, SecretKey key) throws Exception {
+        if (source.getSegments().size() != source.getSegmentCount()) {
+            throw new SecurityException("Vault manifest is incomplete — possible tampering detected.");
+        }
+
+        List<Credential> credentials = new ArrayList<>();
+        for (VaultSegment segment : source.getSegments()) {
+            byte[] ciphertext = VaultFileUtil.loadSegment(vaultName,
+                    VaultFileUtil.segmentFileName(segment.getIndex(), segment.getIv()));
+            Metrics.Sample verifySample = Metrics.start();
+            if (!MessageDigest.isEqual(segment.getDigest(), CryptoUtil.sha256(ciphertext))) {
+                throw new SecurityException("Vault segment " + segment.getIndex() + " failed integrity check.");
+            }
+            Metrics.stop("unlock.hmac", verifySample);
+            Metrics.Sample decryptSample = Metrics.start();
+            byte[] plaintext = CryptoUtil.decrypt(key, ciphertext, segment.getIv());
+            Metrics.stop("unlock.decrypt", decryptSample);
+            credentials.addAll(VaultCodec.isBinaryPayload(plaintext)
+                    ? VaultCodec.decodeCredentials(plaintext)
+                    : VaultJsonCodec.readCredentials(plaintext));
+            wipe(plaintext);
+        }
+        return credentials;
+    }
+
+    // must run on the thread that mutates the vault; the heavy lifting happens in checkpoint
+    private Snapshot takeSnapshot() throws IOException {
+        Snapshot snapshot;
+        synchronized (persistLock) {
+            snapshot = new Snapshot(vaultFile,
+                    vault.getCredentials(),  // immutable
+                    new HashSet<>(vault.getDirtyKeys()),
+                    journal != null ? journal.size() : 0,
+                    fullCheckpointRequired);
+        }
+        vault.clearDirty();
+        vault.clearPending();
+        return snapshot;
+    }
+
+    // folds the snapshot into freshly written segments and a new manifest, then starts a new journal
+    // holding whatever was appended after the snapshot was taken
+    private void checkpoint(Snapshot snapshot) throws Exception {
+        try {
+            VaultFile next = new VaultFile(snapshot.base());
+            int requiredSegments = requiredSegmentCount(snapshot.credentials().size());
+
+            Set<Integer> segmentsToWrite;
+            if (snapshot.full()
+                    || next.getFormatVersion() != VaultFile.FORMAT_SEGMENTED
+                    || requiredSegments > next.getSegmentCount()) {
+                writeHeader(vault, next, vaultKey);
+                next.setFormatVersion(VaultFile.FORMAT_SEGMENTED);
+                next.setSegmentCount(requiredSegments);
+                next.setSegments(new ArrayList<>());
+                segmentsToWrite = allSegments(requiredSegments);
+            } else {
+                segmentsToWrite = snapshot.dirtyKeys().stream()
+                        .map(key -> segmentOf(key, next.getSegmentCount()))
+                        .collect(Collectors.toSet());
+            }
+            writeSegments(vault.getName(), snapshot.credentials(), next, vaultKey, segmentsToWrite);
+
+            synchronized (persistLock) {
+                if (vaultFile != snapshot.base()) return;  // vault was re-keyed in the meantime
+
+                List<VaultJournal.Entry> carried = journal != null
+                        ? journal.readFrom(vaultKey, snapshot.journalOffset())
+                        : List.of();
+                VaultJournal fresh = commitManifest(vault, next, vaultKey, carried);
+                closeJournal();
+                journal     = fresh;
+                vaultFile   = next;
+                journalSize = fresh.size();
+            }
+            if (snapshot.full()) fullCheckpointRequired = false;
+
+        } catch (Exception ex) {
+            // dirty keys of the snapshot are gone, so the next checkpoint has to rewrite everything
+            fullCheckpointRequired = true;
+            throw ex;
+        }
+    }
+
+    private void appendEntries(List<VaultJournal.Entry> entries) throws Exception {
+        try {
+            synchronized (persistLock) {
+                journal.append(vaultKey, entries);
+                journalSize = journal.size();
+            }
+        } catch (Exception ex) {
+            // the in-memory vault still has these changes; make the next save write all of it
+            fullCheckpointRequired = true;
+            throw ex;
+        }
+    }
+
+    private void scheduleCompaction() throws IOException {
+        if (compactionThread != null && compactionThread.isAlive()) return;
+
+        Snapshot snapshot = takeSnapshot();
+        compactionThread = Thread.ofVirtual().name("vault-compaction").start(() -> {
+            try {
+                checkpoint(snapshot);
+            } catch (Exception ex) {
+                System.out.println("Vault compaction failed: " + ex.getMessage());
+            }
+        });
+    }
+
+    private void awaitCompaction() throws InterruptedException {
+        if (compactionThread != null) {
+            compactionThread.join();
+        }
+    }
+
+    // stage the next journal, save the manifest, then promote the staged journal;
+    // a crash in between is resolved by the journal generations in replayJournal
+    private VaultJournal commitManifest(Vault source, VaultFile target, SecretKey key,
+                                        List<VaultJournal.Entry> carried) throws Exception {
+        Path journalPath     = VaultFileUtil.getJournalPath(source.getName());
+        Path nextJournalPath = VaultFileUtil.getNextJournalPath(source.getName());
+
+        // carried entries are re-sealed for the new generation
+        VaultJournal.create(nextJournalPath, key, source.getName(), target.getGeneration() + 1, carried);
+        carried.forEach(entry -> wipe(entry.payload()));
+        saveManifest(source, target);
+        VaultFileUtil.moveAtomically(nextJournalPath, journalPath);
+        return VaultJournal.open(journalPath, source.getName(), target.getGeneration(), carried.size());
+    }
+
+    private VaultJournal replayJournal(String vaultName, VaultFile manifest, SecretKey key, Vault target) throws Exception {
+        Path journalPath     = VaultFileUtil.getJournalPath(vaultName);
+        Path nextJournalPath = VaultFileUtil.getNextJournalPath(vaultName);
+
+        if (readOnly) {
+            return readJournal(vaultName, manifest, key, target);
+        }
+
+        // a checkpoint that stopped right after saving its manifest leaves the new journal staged;
+        // one staged for any other generation never went live, so the current journal still has its entries
+        if (VaultJournal.peekGeneration(nextJournalPath) == manifest.getGeneration()) {
+            VaultFileUtil.moveAtomically(nextJournalPath, journalPath);
+        } else {
+            Files.deleteIfExists(nextJournalPath);
+        }
+
+        // only a journal that authenticates as an older generation is already folded into the segments;
+        // anything else may hold acknowledged changes, so the unlock fails rather than drop them
+        if (!Files.exists(journalPath)) {
+            throw new IllegalStateException("Vault journal " + journalPath + " is missing; restore it to unlock the vault.");
+        }
+        long generation = VaultJournal.readGeneration(journalPath, key, vaultName);
+        if (generation > manifest.getGeneration()) {
+            throw new IllegalStateException("Vault journal " + journalPath + " is newer than the vault manifest; "
+                    + "the manifest may have been restored from an older copy.");
+        }
+        if (generation < manifest.getGeneration()) {
+            VaultJournal.create(journalPath, key, vaultName, manifest.getGeneration(), List.of());
+        }
+
+        VaultJournal.Replay replay = VaultJournal.replay(journalPath, key, vaultName, manifest.getGeneration(), true);
+        applyEntries(replay, target);
+        return VaultJournal.open(journalPath, vaultName, manifest.getGeneration(), replay.lastSequence() + 1);
+    }
+
+    // replayJournal without touching the files: whichever journal is live for the manifest is read in
+    // place, and there is no journal to append to
+    private VaultJournal readJournal(String vaultName, VaultFile manifest, SecretKey key, Vault target) throws Exception {
+        Path journalPath = VaultFileUtil.getJournalPath(vaultName);
+        Path nextJournalPath = VaultFileUtil.getNextJournalPath(vaultName);
+        if (VaultJournal.peekGeneration(nextJournalPath) == manifest.getGeneration()) {
+            journalPath = nextJournalPath;
+        } else if (!Files.exists(journalPath)) {
+            throw new IllegalStateException("Vault journal " + journalPath + " is missing; restore it to unlock the vault.");
+        }
+        long generation = VaultJournal.readGeneration(journalPath, key, vaultName);
+        if (generation > manifest.getGeneration()) {
+            throw new IllegalStateException("Vault journal " + journalPath + " is newer than the vault manifest; "
+                    + "the manifest may have been restored from an older copy.");
+        }
+        if (generation == manifest.getGeneration()) {
+            applyEntries(VaultJournal.replay(journalPath, key, vaultName, generation, false), target);
+        }
+        return null;
+    }
+
+    private void applyEntries(VaultJournal.Replay replay, Vault target) throws Exception {
+        for (VaultJournal.Entry entry : replay.entries()) {
+            if (entry.op() == VaultJournal.OP_PUT) {
+                Credential credential = VaultCodec.isBinaryPayload(entry.payload())
+                        ? VaultCodec.decodeCredential(entry.payload())
+                        : VaultJsonCodec.readCredential(entry.payload());
+                target.removeCredential(credential.getServiceName());
+                target.addCredential(credential);
+            } else {
+                target.removeCredential(new String(entry.payload(), StandardCharsets.UTF_8));
+            }
+            wipe(entry.payload());
+        }
+        // replayed keys are durable in the journal but still missing from the segments
+        target.clearPending();
+    }
+
+    private void requireWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("The vault was opened read-only");
+        }
+    }
+
+    private List<VaultJournal.Entry> pendingEntries() throws Exception {
+        Metrics.Sample sample = Metrics.start();
+        List<VaultJournal.Entry> entries = new ArrayList<>();
+        for (String key : vault.getPendingKeys()) {
+            Optional<Credential> credential = vault.findCredential(key);
+            entries.add(credential.isPresent()
+                    ? new VaultJournal.Entry(VaultJournal.OP_PUT, VaultCodec.encodeCredential(credential.get()))
+                    : new VaultJournal.Entry(VaultJournal.OP_DELETE, key.getBytes(StandardCharsets.UTF_8)));
+        }
+        Metrics.stop("persist.serialize", sample);
+        return entries;
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        awaitCompaction();
+        openVaults.clear();
+        synchronized (persistLock) {
+            closeJournal();
+        }
+    }
+
+    private void saveManifest(Vault source, VaultFile target) throws Exception {
+        target.setGeneration(target.getGeneration() + 1);
+        target.setHash(CryptoUtil.computeHmac(source.getSigningKey(), manifestBytes(target, true)));
+
+        Metrics.Sample serializeSample = Metrics.start();
+        byte[] manifest = VaultCodec.encodeVaultFile(target);
+        Metrics.stop("persist.serialize", serializeSample);
+        Metrics.Sample writeSample = Metrics.start();
+        VaultFileUtil.saveVaultFile(manifest, source.getName());
+        Metrics.stop("persist.write", writeSample, manifest.length);
+
+        // only drop the old segment files once the manifest no longer points at them
+        Set<String> liveSegments = new HashSet<>();
+        target.getSegments().forEach(segment ->
+                liveSegments.add(VaultFileUtil.segmentFileName(segment.getIndex(), segment.getIv())));
+        VaultFileUtil.pruneSegments(source.getName(), liveSegments);
+    }
+
+    // binary container, or the JSON file written by earlier versions
+    private VaultFile decodeVaultFile(byte[] bytes) throws IOException {
+        return VaultCodec.isBinaryContainer(bytes)
+                ? VaultCodec.decodeVaultFile(bytes)
+                : VaultJsonCodec.readVaultFile(bytes);
+    }
+
+    // canonical bytes covered by the manifest HMAC; manifests saved before the derive time was
+    // signed are checked without it
+    private byte[] manifestBytes(VaultFile source, boolean withDeriveTime) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(source.getFormatVersion());
+        out.writeInt(source.getIterations());
+        if (withDeriveTime) out.writeLong(source.getDeriveMillis());
+        writeBytes(out, source.getSalt());
+        writeBytes(out, source.getIv());
+        writeBytes(out, source.getCiphertext());
+        out.writeLong(source.getGeneration());
+        out.writeInt(source.getSegmentCount());
+        for (VaultSegment segment : source.getSegments()) {
+            out.writeInt(segment.getIndex());
+            writeBytes(out, segment.getIv());
+            writeBytes(out, segment.getDigest());
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int segmentOf(String indexKey, int segmentCount) {
+        return Math.floorMod(indexKey.hashCode(), segmentCount);
+    }
+
+    // smallest power of two that keeps segments around SEGMENT_TARGET_SIZE entries
+    private static int requiredSegmentCount(int credentialCount) {
+        int needed = Math.max(1, (credentialCount + SEGMENT_TARGET_SIZE - 1) / SEGMENT_TARGET_SIZE);
+        return needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    private static Set<Integer> allSegments(int segmentCount) {
+        return IntStream.range(0, segmentCount).boxed().collect(Collectors.toSet());
+    }
+
     private void integrityCheck(byte[] storedHash, byte[] signingKey,
                                 byte[] salt, byte[] iv,
                                 int iterations, byte[] ciphertext)
@@ -186,6 +1042,14 @@ public class VaultService implements IVaultService {
         }
     }
 
+    private void integrityCheck(byte[] storedHash, byte[] signingKey, byte[] manifest)
+            throws SecurityException, NoSuchAlgorithmException, InvalidKeyException {
+
+        if (!MessageDigest.isEqual(storedHash, CryptoUtil.computeHmac(signingKey, manifest))) {
+            throw new SecurityException("Vault integrity check failed — possible tampering detected.");
+        }
+    }
+
     private void wipe(byte[] bytes) {
         if (bytes != null) Arrays.fill(bytes, (byte) 0);
     }
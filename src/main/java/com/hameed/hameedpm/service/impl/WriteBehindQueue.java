@@ -0,0 +1,122 @@
+package com.hameed.hameedpm.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Collects journal entries from interactive commands and writes them from a background virtual
+// thread. A burst of submissions is coalesced into a single write once no new submission has
+// arrived for the debounce window, or once the oldest pending entry has waited maxDelay, so a
+// steady stream of changes is still written regularly; flush() is the barrier that waits until
+// everything submitted so far is durable.
+class WriteBehindQueue {
+
+    interface BatchWriter {
+        void write(List<VaultJournal.Entry> batch) throws Exception;
+    }
+
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final BatchWriter writer;
+
+    private final List<VaultJournal.Entry> queue = new ArrayList<>();
+    private long firstSubmit;
+    private long lastSubmit;
+    private Thread worker;
+    private boolean inFlight;
+    private boolean flushRequested;
+    private boolean stopping;
+    private Exception failure;
+
+    WriteBehindQueue(Duration debounce, Duration maxDelay, BatchWriter writer) {
+        this.debounceMillis = Math.max(0, debounce.toMillis());
+        this.maxDelayMillis = Math.max(debounceMillis, maxDelay.toMillis());
+        this.writer = writer;
+    }
+
+    void submit(List<VaultJournal.Entry> entries) {
+        if (entries.isEmpty()) return;
+        synchronized (queue) {
+            lastSubmit = System.currentTimeMillis();
+            if (queue.isEmpty()) firstSubmit = lastSubmit;
+            queue.addAll(entries);
+            if (worker == null) {
+                stopping = false;
+                worker = Thread.ofVirtual().name("vault-write-behind").start(this::drain);
+            }
+            queue.notifyAll();
+        }
+    }
+
+    // blocks until every submitted entry has been written, rethrowing a background failure
+    void flush() throws Exception {
+        synchronized (queue) {
+            flushRequested = true;
+            queue.notifyAll();
+            while (!queue.isEmpty() || inFlight) {
+                queue.wait();
+            }
+            if (failure != null) {
+                Exception ex = failure;
+                failure = null;
+                throw new Exception("Background vault save failed: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    void close() throws Exception {
+        Thread stopped;
+        synchronized (queue) {
+            stopping = true;
+            queue.notifyAll();
+            stopped = worker;
+            worker = null;
+        }
+        if (stopped != null) {
+            stopped.join();
+        }
+        flush();
+    }
+
+    private void drain() {
+        while (true) {
+            List<VaultJournal.Entry> batch;
+            synchronized (queue) {
+                try {
+                    while (queue.isEmpty()) {
+                        if (stopping) return;
+                        queue.wait();
+                    }
+                    // keep collecting until the burst goes quiet or has waited maxDelay, a flush is
+                    // requested or we stop; every submission pushes the quiet deadline back
+                    while (!flushRequested && !stopping) {
+                        long deadline = Math.min(lastSubmit + debounceMillis, firstSubmit + maxDelayMillis);
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) break;
+                        queue.wait(remaining);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                batch = new ArrayList<>(queue);
+                queue.clear();
+                inFlight = true;
+            }
+
+            try {
+                writer.write(batch);
+            } catch (Exception ex) {
+                synchronized (queue) {
+                    failure = ex;
+                }
+            }
+
+            synchronized (queue) {
+                inFlight = false;
+                if (queue.isEmpty()) flushRequested = false;
+                queue.notifyAll();
+            }
+        }
+    }
+}
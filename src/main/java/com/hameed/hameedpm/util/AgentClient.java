@@ -0,0 +1,116 @@
+package com.hameed.hameedpm.util;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+
+// Forwards one-shot CLI invocations (hameed-pm get github) to a running unlock agent, so they are
+// answered without booting the shell, deriving the key or reading the vault.
+public class AgentClient {
+
+    private static final Set<String> FORWARDED_COMMANDS = Set.of("get", "list", "search", "add");
+
+    public static boolean isForwardable(String[] args) {
+        return args.length > 0 && FORWARDED_COMMANDS.contains(args[0]);
+    }
+
+    public static boolean isAgentRunning() {
+        try (SocketChannel channel = connect()) {
+            return channel != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // exit status of the forwarded command, or empty when no agent is listening
+    public static OptionalInt forward(String[] args) {
+        try (SocketChannel channel = connect()) {
+            if (channel == null) return OptionalInt.empty();
+
+            AgentProtocol.Request request;
+            try {
+                request = toRequest(args);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return OptionalInt.of(AgentProtocol.STATUS_INVALID);
+            }
+
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream  in  = new DataInputStream(Channels.newInputStream(channel));
+            AgentProtocol.writeRequest(out, request);
+            AgentProtocol.Response response = AgentProtocol.readResponse(in);
+            System.out.print(response.output());
+            System.out.flush();
+            return OptionalInt.of(response.status());
+        } catch (IOException e) {
+            System.out.println("Agent request failed: " + e.getMessage());
+            return OptionalInt.of(AgentProtocol.STATUS_ERROR);
+        }
+    }
+
+    private static SocketChannel connect() throws IOException {
+        Path socketPath = VaultFileUtil.getAgentSocketPath();
+        if (!Files.exists(socketPath)) return null;
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            return channel;
+        } catch (IOException e) {
+            // stale socket left by an agent that did not shut down cleanly
+            channel.close();
+            return null;
+        }
+    }
+
+    // add reads the password from the console, or from the first line of stdin when piped,
+    // so it never shows up in the process list
+    private static AgentProtocol.Request toRequest(String[] args) {
+        String command = args[0];
+        List<String> rest = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        if (!command.equals("add")) {
+            return new AgentProtocol.Request(command, rest);
+        }
+
+        if (rest.size() < 2) {
+            throw new IllegalArgumentException("Usage: add <service-name> <username> [key=value]...");
+        }
+        List<String> request = new ArrayList<>(List.of(rest.get(0), rest.get(1), readPassword()));
+        for (String info : rest.subList(2, rest.size())) {
+            int separator = info.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Additional info must be given as key=value: " + info);
+            }
+            request.add(info.substring(0, separator));
+            request.add(info.substring(separator + 1));
+        }
+        return new AgentProtocol.Request(command, request);
+    }
+
+    private static String readPassword() {
+        Console console = System.console();
+        if (console != null) {
+            char[] password = console.readPassword("Password: ");
+            return password != null ? new String(password) : "";
+        }
+        try {
+            String line = new BufferedReader(new InputStreamReader(System.in)).readLine();
+            return line != null ? line : "";
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read password from stdin: " + e.getMessage());
+        }
+    }
+}
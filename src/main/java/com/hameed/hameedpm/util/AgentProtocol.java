@@ -0,0 +1,74 @@
+package com.hameed.hameedpm.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Wire format between the CLI and the unlock agent, one request and one response per connection.
+// Request:  [int version][utf command][int argc][utf arg]...
+// Response: [int status][int length][utf-8 output]; status uses the shell's exit codes
+public class AgentProtocol {
+
+    public static final int VERSION = 1;
+
+    public static final int STATUS_OK        = 0;
+    public static final int STATUS_INVALID   = 1;
+    public static final int STATUS_NOT_FOUND = 2;
+    public static final int STATUS_ERROR     = 99;
+
+    private static final int MAX_ARGS   = 1_024;
+    private static final int MAX_OUTPUT = 64 * 1024 * 1024;
+
+    public record Request(String command, List<String> args) {}
+
+    public record Response(int status, String output) {}
+
+    public static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(VERSION);
+        out.writeUTF(request.command());
+        out.writeInt(request.args().size());
+        for (String arg : request.args()) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    public static Request readRequest(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported agent protocol version: " + version);
+        }
+        String command = in.readUTF();
+        int argc = in.readInt();
+        if (argc < 0 || argc > MAX_ARGS) {
+            throw new IOException("Invalid agent request");
+        }
+        List<String> args = new ArrayList<>(argc);
+        for (int i = 0; i < argc; i++) {
+            args.add(in.readUTF());
+        }
+        return new Request(command, args);
+    }
+
+    public static void writeResponse(DataOutputStream out, Response response) throws IOException {
+        byte[] output = response.output().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(response.status());
+        out.writeInt(output.length);
+        out.write(output);
+        out.flush();
+    }
+
+    public static Response readResponse(DataInputStream in) throws IOException {
+        int status = in.readInt();
+        int length = in.readInt();
+        if (length < 0 || length > MAX_OUTPUT) {
+            throw new IOException("Invalid agent response");
+        }
+        byte[] output = new byte[length];
+        in.readFully(output);
+        return new Response(status, new String(output, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package com.hameed.hameedpm.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hameed.hameedpm.enums.PasswordIssue;
+import com.hameed.hameedpm.model.AuditSummary;
+import com.hameed.hameedpm.model.AuditSummary.Entry;
+import com.hameed.hameedpm.model.AuditSummary.ReuseGroup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Renders an audit as text or as JSON: the ranked credentials, issue counts and reuse groups
+public class AuditReport {
+
+    private static final String ENTRY_ROW = "%5s %6s %7s %7s  %-24s %-28s %s%n";
+
+    public static void print(AuditSummary summary, PrintWriter out) {
+        if (!summary.entries().isEmpty()) {
+            out.printf(ENTRY_ROW, "rank", "score", "bits", "reused", "service", "username", "issues");
+            int rank = 1;
+            for (Entry entry : summary.entries()) {
+                out.printf(ENTRY_ROW, rank++, entry.score(), String.format("%.1f", entry.entropyBits()),
+                        entry.reuseCount() > 1 ? "x" + entry.reuseCount() : "-",
+                        entry.serviceName(), entry.username(), describe(entry.issues()));
+            }
+            int unlisted = summary.credentials() - summary.entries().size();
+            if (unlisted > 0) out.println("  ... and " + unlisted + " more credential(s)");
+        }
+
+        if (!summary.issueCounts().isEmpty()) {
+            out.println();
+            out.println("Issues:");
+            summary.issueCounts().forEach((issue, count) -> out.printf("  %-22s %8d%n", issue.getDescription(), count));
+        }
+
+        if (summary.reuseGroupCount() > 0) {
+            out.println();
+            out.println("Passwords shared by more than one credential, in " + summary.reuseGroupCount() + " group(s):");
+            for (ReuseGroup group : summary.reuseGroups()) {
+                int more = group.count() - group.serviceNames().size();
+                out.printf("  %6d  %s%s%n", group.count(), String.join(", ", group.serviceNames()),
+                        more > 0 ? ", ... (" + more + " more)" : "");
+            }
+            int unlisted = summary.reuseGroupCount() - summary.reuseGroups().size();
+            if (unlisted > 0) out.println("  ... and " + unlisted + " more group(s)");
+        }
+
+        out.println();
+        out.printf("Audited %d credential(s) in %.1f ms (%.0f/s): %d weak, %d with a reused password.%n",
+                summary.credentials(), summary.nanos() / 1_000_000.0, summary.credentialsPerSecond(),
+                summary.weak(), summary.reused());
+        out.flush();
+    }
+
+    public static void writeJson(AuditSummary summary, Writer writer) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(writer)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);  // the caller owns the writer
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeNumberField("credentials", summary.credentials());
+            json.writeNumberField("weak", summary.weak());
+            json.writeNumberField("reused", summary.reused());
+            json.writeNumberField("nanos", summary.nanos());
+
+            json.writeObjectFieldStart("issues");
+            for (Map.Entry<PasswordIssue, Integer> issue : summary.issueCounts().entrySet()) {
+                json.writeNumberField(issue.getKey().name().toLowerCase(), issue.getValue());
+            }
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("entries");
+            for (Entry entry : summary.entries()) {
+                json.writeStartObject();
+                json.writeStringField("service_name", entry.serviceName());
+                json.writeStringField("username", entry.username());
+                json.writeNumberField("score", entry.score());
+                json.writeNumberField("entropy_bits", Math.round(entry.entropyBits() * 10) / 10.0);
+                json.writeNumberField("reuse_count", entry.reuseCount());
+                json.writeArrayFieldStart("issues");
+                for (PasswordIssue issue : entry.issues()) json.writeString(issue.name().toLowerCase());
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeNumberField("reuse_group_count", summary.reuseGroupCount());
+            json.writeArrayFieldStart("reuse_groups");
+            for (ReuseGroup group : summary.reuseGroups()) {
+                json.writeStartObject();
+                json.writeNumberField("count", group.count());
+                json.writeArrayFieldStart("service_names");
+                for (String serviceName : group.serviceNames()) json.writeString(serviceName);
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static String describe(Set<PasswordIssue> issues) {
+        return issues.isEmpty() ? "-" : issues.stream().map(PasswordIssue::getDescription).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,252 @@
+package com.hameed.hameedpm.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A downloaded breached-password corpus: text lines of "SHA1:COUNT", 40 hex digits sorted ascending,
+// as in the "ordered by hash" Pwned Passwords dump. The file is memory-mapped, not read, so a lookup
+// touches a few pages of a multi-gigabyte file. SHA-1 is uniform, so a lookup starts where the hash
+// should be if the lines were evenly spread and binary-searches a window around that guess, widening
+// it only when the guess was off.
+public class BreachCorpus implements AutoCloseable {
+
+    public static final int HASH_LENGTH = 20;
+    private static final int HEX_LENGTH = HASH_LENGTH * 2;
+
+    // a MappedByteBuffer holds at most 2 GiB, so larger files are mapped in 1 GiB chunks
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    // half the first window around the guess; about 1.5k lines, a few pages
+    private static final long INITIAL_RADIUS = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+    private final long lastModified;
+
+    private BreachCorpus(Path path, FileChannel channel, MappedByteBuffer[] chunks, long size, long lastModified) {
+        this.path = path;
+        this.channel = channel;
+        this.chunks = chunks;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public static BreachCorpus open(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Breach corpus not found: " + path);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, CHUNK_MASK + 1));
+            }
+            BreachCorpus corpus = new BreachCorpus(path, channel, chunks, size,
+                    Files.getLastModifiedTime(path).toMillis());
+            if (size < HEX_LENGTH || !corpus.isHashLine(0)) {
+                throw new IllegalArgumentException("Not a SHA-1 password corpus (expected lines of 40 hex digits, "
+                        + "optionally followed by ':count'): " + path);
+            }
+            return corpus;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long lastModified() {
+        return lastModified;
+    }
+
+    // first and last hash of the file, which together with its size and modification time tell one
+    // corpus from another without reading it
+    public byte[] fingerprint() {
+        long last = lineStart(size - 1, 0);
+        while (last > 0 && !isHashLine(last)) last = lineStart(last - 1, 0);  // trailing blank lines
+        byte[] fingerprint = new byte[2 * HASH_LENGTH];
+        readHash(0, fingerprint, 0);
+        readHash(last, fingerprint, HASH_LENGTH);
+        return fingerprint;
+    }
+
+    // how often the password with this SHA-1 was seen in breaches; 0 when it is not in the corpus
+    public long lookup(byte[] sha1) {
+        return lookup(sha1, new long[1]);
+    }
+
+    // as lookup, for callers going through hashes in ascending order: cursor[0] is where the previous
+    // search ended and nothing before it is searched again. Start with a cursor of 0.
+    public long lookup(byte[] sha1, long[] cursor) {
+        long from = cursor[0];
+        long guess = Math.max(from, (long) (fraction(sha1) * size));
+        long radius = INITIAL_RADIUS;
+        long lo;
+        long hi;
+        // widen the window until its first line sorts at or before the hash and the line after it sorts after
+        while (true) {
+            lo = guess - radius <= from ? from : lineStart(guess - radius, from);
+            hi = guess + radius >= size ? size : nextLine(guess + radius);
+            int low = lo > from ? compareLine(lo, sha1) : -1;
+            int high = hi < size ? compareLine(hi, sha1) : 1;
+            if (low == 0 || high == 0) {
+                cursor[0] = low == 0 ? lo : hi;
+                return count(cursor[0]);
+            }
+            if (low < 0 && high > 0) break;
+            radius <<= 2;
+        }
+        while (lo < hi) {
+            long mid = lineStart(lo + (hi - lo) / 2, lo);
+            int cmp = compareLine(mid, sha1);
+            if (cmp == 0) {
+                cursor[0] = mid;
+                return count(mid);
+            }
+            if (cmp < 0) lo = nextLine(mid);
+            else hi = mid;
+        }
+        cursor[0] = lo;
+        return 0;
+    }
+
+    // every hash in the file, in order, for building a filter; progress may be null
+    public void forEachHash(HashConsumer consumer, PrintWriter progress) {
+        byte[] sha1 = new byte[HASH_LENGTH];
+        long start = System.nanoTime();
+        long lastProgress = start;
+        long lines = 0;
+        for (long pos = 0; pos < size; pos = nextLine(pos)) {
+            if (!isHashLine(pos)) {
+                if (isBlankLine(pos)) continue;
+                throw new IllegalStateException("Malformed line at byte " + pos + " of " + path);
+            }
+            readHash(pos, sha1, 0);
+            consumer.accept(sha1);
+            lines++;
+            long now = System.nanoTime();
+            if (progress != null && (lines & 0xFFFF) == 0 && now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                progress.printf("\rRead %,d hashes, %.0f%% ", lines, pos * 100.0 / size);
+                progress.flush();
+                lastProgress = now;
+            }
+        }
+        if (progress != null && lastProgress != start) {
+            progress.println();
+            progress.flush();
+        }
+    }
+
+    @FunctionalInterface
+    public interface HashConsumer {
+        void accept(byte[] sha1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the mappings go when the buffers are collected; closing the channel does not unmap them
+        channel.close();
+    }
+
+    // where the hash would sit, as a fraction of the file, from its first 52 bits
+    private static double fraction(byte[] sha1) {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) prefix = prefix << 8 | (sha1[i] & 0xFF);
+        return (prefix >>> 12) / (double) (1L << 52);
+    }
+
+    // compares the hash on the line starting at pos with sha1
+    private int compareLine(long pos, byte[] sha1) {
+        if (!isHashLine(pos)) {
+            if (isBlankLine(pos)) return 1;  // only at the end of the file
+            throw new IllegalStateException("Malformed line at byte " + pos + " of " + path);
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int b = hexValue(get(pos + 2L * i)) << 4 | hexValue(get(pos + 2L * i + 1));
+            int cmp = Integer.compare(b, sha1[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    private void readHash(long pos, byte[] target, int offset) {
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            target[offset + i] = (byte) (hexValue(get(pos + 2L * i)) << 4 | hexValue(get(pos + 2L * i + 1)));
+        }
+    }
+
+    // the count after the hash, or 1 for a corpus of bare hashes
+    private long count(long pos) {
+        long at = pos + HEX_LENGTH;
+        if (at >= size || get(at) != ':') return 1;
+        long count = 0;
+        for (at++; at < size; at++) {
+            byte b = get(at);
+            if (b < '0' || b > '9') break;
+            count = count * 10 + (b - '0');
+        }
+        return Math.max(count, 1);
+    }
+
+    private boolean isHashLine(long pos) {
+        if (pos + HEX_LENGTH > size) return false;
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            if (hexValue(get(pos + i)) < 0) return false;
+        }
+        return pos + HEX_LENGTH == size || !isHexDigit(get(pos + HEX_LENGTH));
+    }
+
+    private boolean isBlankLine(long pos) {
+        for (long at = pos; at < size; at++) {
+            byte b = get(at);
+            if (b == '\n') return true;
+            if (b != '\r' && b != ' ') return false;
+        }
+        return true;
+    }
+
+    // start of the line holding pos, but not before floor, which is itself a line start
+    private long lineStart(long pos, long floor) {
+        while (pos > floor && get(pos - 1) != '\n') pos--;
+        return pos;
+    }
+
+    // start of the line after the one holding pos, or the end of the file
+    private long nextLine(long pos) {
+        while (pos < size && get(pos) != '\n') pos++;
+        return Math.min(pos + 1, size);
+    }
+
+    private byte get(long pos) {
+        return chunks[(int) (pos >>> CHUNK_SHIFT)].get((int) (pos & CHUNK_MASK));
+    }
+
+    private static boolean isHexDigit(byte b) {
+        return hexValue(b) >= 0;
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'A' && b <= 'F') return b - 'A' + 10;
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        return -1;
+    }
+}
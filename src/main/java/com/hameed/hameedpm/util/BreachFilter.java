@@ -0,0 +1,168 @@
+package com.hameed.hameedpm.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Bloom filter over the hashes of a breach corpus, kept in a sidecar file next to it ("<corpus>.bloom").
+// A password whose hash the filter rules out is not in the corpus, so most misses are answered from a
+// file about 3% of the corpus' size without touching the corpus. The hashes are SHA-1, already
+// uniform, so the bit positions come straight from their bytes (double hashing on the first two longs).
+//
+// Layout: "HPMBLOOM", version, number of probes, number of bits, then the size, modification time and
+// first and last hash of the corpus it was built from, then the bits. A filter is only used while the
+// corpus still matches all four; a corpus replaced by another of the same size would otherwise have
+// its breaches ruled out as misses.
+public class BreachFilter implements AutoCloseable {
+
+    public static final String SUFFIX = ".bloom";
+
+    private static final byte[] MAGIC = "HPMBLOOM".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 32 + 8 + 2 * BreachCorpus.HASH_LENGTH;
+
+    // about 1% false positives: 9.6 bits and 7 probes per hash
+    private static final double BITS_PER_HASH = 9.6;
+    private static final int PROBES = 7;
+    // the shortest corpus line, "<40 hex>:1\n"; dividing the corpus size by it overestimates the hash count
+    private static final int MIN_LINE_LENGTH = 43;
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long bits;
+    private final int probes;
+    private final long corpusSize;
+    private final long corpusModified;
+    private final byte[] corpusFingerprint;
+
+    private BreachFilter(FileChannel channel, MappedByteBuffer[] chunks, long bits, int probes, long corpusSize,
+                         long corpusModified, byte[] corpusFingerprint) {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.bits = bits;
+        this.probes = probes;
+        this.corpusSize = corpusSize;
+        this.corpusModified = corpusModified;
+        this.corpusFingerprint = corpusFingerprint;
+    }
+
+    public static Path sidecarOf(Path corpus) {
+        return corpus.resolveSibling(corpus.getFileName() + SUFFIX);
+    }
+
+    public static BreachFilter open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {}
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            if (header.remaining() < HEADER_LENGTH || !Arrays.equals(magic(header, magic), MAGIC) || header.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a breach filter: " + path);
+            }
+            int probes = header.getInt();
+            long bits = header.getLong();
+            long corpusSize = header.getLong();
+            long corpusModified = header.getLong();
+            byte[] corpusFingerprint = new byte[2 * BreachCorpus.HASH_LENGTH];
+            header.get(corpusFingerprint);
+            if (channel.size() != HEADER_LENGTH + (bits + 7) / 8) {
+                throw new IllegalArgumentException("Breach filter is truncated: " + path);
+            }
+            return new BreachFilter(channel, map(channel, FileChannel.MapMode.READ_ONLY, bits),
+                    bits, probes, corpusSize, corpusModified, corpusFingerprint);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // writes the filter for corpus to target, replacing it only once it is complete; progress may be null
+    public static void build(BreachCorpus corpus, Path target, PrintWriter progress) throws IOException {
+        long bits = Math.max(64, (long) Math.ceil(corpus.size() / (double) MIN_LINE_LENGTH * BITS_PER_HASH));
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            byte[] fingerprint = corpus.fingerprint();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                    .put(MAGIC).putInt(VERSION).putInt(PROBES).putLong(bits)
+                    .putLong(corpus.size()).putLong(corpus.lastModified()).put(fingerprint).flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+            MappedByteBuffer[] chunks = map(channel, FileChannel.MapMode.READ_WRITE, bits);
+            BreachFilter filter = new BreachFilter(channel, chunks, bits, PROBES, corpus.size(),
+                    corpus.lastModified(), fingerprint);
+            corpus.forEachHash(filter::add, progress);
+            for (MappedByteBuffer chunk : chunks) chunk.force();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // whether this filter was built from this corpus, i.e. is not stale
+    public boolean matches(BreachCorpus corpus) {
+        return corpusSize == corpus.size()
+                && corpusModified == corpus.lastModified()
+                && Arrays.equals(corpusFingerprint, corpus.fingerprint());
+    }
+
+    // false when the hash is certainly not in the corpus
+    public boolean mightContain(byte[] sha1) {
+        long h1 = ByteBuffer.wrap(sha1, 0, 8).getLong();
+        long h2 = ByteBuffer.wrap(sha1, 8, 8).getLong() | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((get(bit >>> 3) & (1 << (bit & 7))) == 0) return false;
+        }
+        return true;
+    }
+
+    private void add(byte[] sha1) {
+        long h1 = ByteBuffer.wrap(sha1, 0, 8).getLong();
+        long h2 = ByteBuffer.wrap(sha1, 8, 8).getLong() | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            long at = bit >>> 3;
+            MappedByteBuffer chunk = chunks[(int) (at >>> CHUNK_SHIFT)];
+            int offset = (int) (at & CHUNK_MASK);
+            chunk.put(offset, (byte) (chunk.get(offset) | (1 << (bit & 7))));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte get(long at) {
+        return chunks[(int) (at >>> CHUNK_SHIFT)].get((int) (at & CHUNK_MASK));
+    }
+
+    // the bits, after the header, in chunks a MappedByteBuffer can hold
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long bits) throws IOException {
+        long length = (bits + 7) / 8;
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long offset = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(mode, HEADER_LENGTH + offset, Math.min(length - offset, CHUNK_MASK + 1));
+        }
+        return chunks;
+    }
+
+    private static byte[] magic(ByteBuffer header, byte[] magic) {
+        header.get(magic);
+        return magic;
+    }
+}
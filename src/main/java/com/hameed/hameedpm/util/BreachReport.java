@@ -0,0 +1,67 @@
+package com.hameed.hameedpm.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hameed.hameedpm.model.BreachSummary;
+import com.hameed.hameedpm.model.BreachSummary.FilterStatus;
+import com.hameed.hameedpm.model.BreachSummary.Match;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+// Renders a breach check as text or as JSON: the breached credentials and how the corpus was searched
+public class BreachReport {
+
+    private static final String MATCH_ROW = "%12s  %-24s %s%n";
+
+    public static void print(BreachSummary summary, PrintWriter out) {
+        if (summary.matches().isEmpty()) {
+            out.println("No password in the vault appears in the corpus.");
+        } else {
+            out.printf(MATCH_ROW, "seen", "service", "username");
+            for (Match match : summary.matches()) {
+                out.printf(MATCH_ROW, String.format("%,d", match.count()), match.serviceName(), match.username());
+            }
+            out.println();
+            out.println(summary.matches().size() + " credential(s) use a password found in breaches; change them.");
+        }
+
+        out.println();
+        if (summary.filter() == FilterStatus.STALE) {
+            out.println("The filter next to the corpus was built from a different file and was not used; "
+                    + "rebuild it with breach-check --build-filter.");
+        }
+        out.printf("Checked %d distinct password(s) of %d credential(s) against %s (%.1f GB) in %.1f ms (%.0f/s); "
+                        + "%d ruled out by the filter, %d searched.%n",
+                summary.distinctPasswords(), summary.credentials(), summary.corpus(), summary.corpusBytes() / 1e9,
+                summary.nanos() / 1_000_000.0, summary.passwordsPerSecond(), summary.filtered(), summary.searched());
+        out.flush();
+    }
+
+    public static void writeJson(BreachSummary summary, Writer writer) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(writer)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);  // the caller owns the writer
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeStringField("corpus", summary.corpus());
+            json.writeNumberField("corpus_bytes", summary.corpusBytes());
+            json.writeStringField("filter", summary.filter().name().toLowerCase());
+            json.writeNumberField("credentials", summary.credentials());
+            json.writeNumberField("distinct_passwords", summary.distinctPasswords());
+            json.writeNumberField("filtered", summary.filtered());
+            json.writeNumberField("searched", summary.searched());
+            json.writeNumberField("nanos", summary.nanos());
+            json.writeArrayFieldStart("matches");
+            for (Match match : summary.matches()) {
+                json.writeStartObject();
+                json.writeStringField("service_name", match.serviceName());
+                json.writeStringField("username", match.username());
+                json.writeNumberField("count", match.count());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+}
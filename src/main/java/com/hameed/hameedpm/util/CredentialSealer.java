@@ -0,0 +1,84 @@
+package com.hameed.hameedpm.util;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.Vault;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+// Envelope encryption of a single credential: password and additional info are sealed with the
+// vault's record key under their own IV, with the case-folded service name as associated data so a
+// sealed secret cannot be moved to another record. Service name and username stay in the clear.
+public class CredentialSealer {
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    public static final int RECORD_KEY_LENGTH = 32;
+
+    // sealing runs once per inserted row on bulk loads, so the cipher instance is reused per thread
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (Exception e) {
+            throw new IllegalStateException("AES/GCM is not available", e);
+        }
+    });
+
+    public static void seal(Credential credential, SecretKey recordKey) {
+        if (credential.isSealed()) return;
+        byte[] plaintext = null;
+        try {
+            plaintext = VaultCodec.encodeSecret(credential);
+            byte[] iv = CryptoUtil.generateRandomBytes(IV_LENGTH);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, recordKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(associatedData(credential));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+
+            byte[] sealed = new byte[IV_LENGTH + ciphertext.length];
+            System.arraycopy(iv, 0, sealed, 0, IV_LENGTH);
+            System.arraycopy(ciphertext, 0, sealed, IV_LENGTH, ciphertext.length);
+            credential.setSealedSecret(sealed);
+            credential.setPassword(null);
+            credential.setAdditionalInfo(null);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to seal credential '" + credential.getServiceName() + "'", e);
+        } finally {
+            if (plaintext != null) Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    // plaintext copy of the credential; the sealed original is left untouched
+    public static Credential open(Credential credential, SecretKey recordKey) {
+        Credential opened = new Credential(credential);
+        opened.setSealedSecret(null);
+        if (credential.isSealed()) {
+            byte[] sealed = credential.getSealedSecret();
+            byte[] plaintext = null;
+            try {
+                Cipher cipher = CIPHER.get();
+                cipher.init(Cipher.DECRYPT_MODE, recordKey,
+                        new GCMParameterSpec(TAG_LENGTH_BITS, sealed, 0, IV_LENGTH));
+                cipher.updateAAD(associatedData(credential));
+                plaintext = cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+                VaultCodec.decodeSecret(plaintext, opened);
+            } catch (Exception e) {
+                throw new SecurityException("Credential '" + credential.getServiceName() + "' failed integrity check.");
+            } finally {
+                if (plaintext != null) Arrays.fill(plaintext, (byte) 0);
+            }
+        }
+        if (opened.getAdditionalInfo() == null) {
+            opened.setAdditionalInfo(new LinkedHashMap<>());
+        }
+        return opened;
+    }
+
+    private static byte[] associatedData(Credential credential) {
+        return Vault.indexKey(credential.getServiceName()).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -4,8 +4,10 @@ import javax.crypto.*;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.DestroyFailedException;
 import java.nio.ByteBuffer;
 import java.security.*;
+import java.util.Arrays;
 
 public class CryptoUtil {
 
@@ -23,8 +25,18 @@ public class CryptoUtil {
         return skf.generateSecret(spec).getEncoded();
     }
 
+    // the key keeps its own copy of keyBytes, which destroyKey zeroes
     public static SecretKey keyFromBytes(byte[] keyBytes) {
-        return new SecretKeySpec(keyBytes, "AES");
+        return new WipeableKey(keyBytes);
+    }
+
+    public static void destroyKey(SecretKey key) {
+        if (key == null || key.isDestroyed()) return;
+        try {
+            key.destroy();
+        } catch (DestroyFailedException e) {
+            // keys from other sources may not support it; nothing more can be done here
+        }
     }
 
     public static byte[] encrypt(SecretKey key, byte[] plaintext, byte[] iv) throws Exception {
@@ -40,6 +52,21 @@ public class CryptoUtil {
         return c.doFinal(ciphertext);
     }
 
+    public static byte[] encrypt(SecretKey key, byte[] plaintext, byte[] iv, byte[] aad) throws Exception {
+        Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+        c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        c.updateAAD(aad);
+        return c.doFinal(plaintext);
+    }
+
+    public static byte[] decrypt(SecretKey key, byte[] ciphertext, byte[] iv, byte[] aad)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+        c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        c.updateAAD(aad);
+        return c.doFinal(ciphertext);
+    }
+
     public static byte[] computeHmac(byte[] signingKey, byte[] salt, byte[] iv, int iterations, byte[] ciphertext) throws NoSuchAlgorithmException, InvalidKeyException {
         Mac mac = Mac.getInstance("HmacSHA256");
         mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
@@ -50,4 +77,57 @@ public class CryptoUtil {
         return mac.doFinal();
     }
 
+    public static byte[] computeHmac(byte[] signingKey, byte[] data) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+        return mac.doFinal(data);
+    }
+
+    // one HMAC-SHA256 instance for hashing many values under the same key; not thread-safe
+    public static Mac hmac(byte[] key) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac;
+    }
+
+    public static byte[] sha256(byte[] data) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    // SecretKeySpec cannot be destroyed, so the vault and record keys use this instead
+    private static final class WipeableKey implements SecretKey {
+        private final byte[] key;
+        private volatile boolean destroyed;
+
+        WipeableKey(byte[] key) {
+            this.key = key.clone();
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "AES";
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            if (destroyed) throw new IllegalStateException("Key has been destroyed");
+            return key.clone();
+        }
+
+        @Override
+        public void destroy() {
+            Arrays.fill(key, (byte) 0);
+            destroyed = true;
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return destroyed;
+        }
+    }
 }
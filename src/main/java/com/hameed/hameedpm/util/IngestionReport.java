@@ -0,0 +1,139 @@
+package com.hameed.hameedpm.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hameed.hameedpm.enums.RecordError;
+import com.hameed.hameedpm.model.IngestionSummary;
+import com.hameed.hameedpm.model.IngestionSummary.DuplicateGroup;
+import com.hameed.hameedpm.model.IngestionSummary.ErrorGroup;
+import com.hameed.hameedpm.model.IngestionSummary.FileSummary;
+import com.hameed.hameedpm.model.UpsertReport;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+// Renders what a load read and did as text or as JSON, in the same sections: files, rejected
+// records by error class, duplicate groups, conflicts with the vault and the outcome.
+public class IngestionReport {
+
+    private static final String FILE_ROW = "%9s %9s %10s %10s %10s  %-15s %s%n";
+
+    public static void print(IngestionSummary summary, PrintWriter out) {
+        out.printf(FILE_ROW, "records", "rejected", "MB", "ms", "rec/s", "format", "file");
+        for (FileSummary file : summary.files()) {
+            out.printf(FILE_ROW, file.records(), file.rejected(), String.format("%.2f", file.bytes() / 1_048_576.0),
+                    String.format("%.2f", file.nanos() / 1_000_000.0), String.format("%.0f", file.recordsPerSecond()),
+                    file.format() != null ? file.format() : "-",
+                    file.path() + (file.error() != null ? "  FAILED " + file.error() : ""));
+        }
+
+        if (!summary.errors().isEmpty()) {
+            long rejected = summary.errors().values().stream().mapToLong(ErrorGroup::count).sum();
+            out.println();
+            out.println("Rejected " + rejected + " record(s):");
+            summary.errors().forEach((error, group) -> out.printf("  %-20s %8d  %s%n",
+                    error.getDescription(), group.count(), rows(group.rows(), group.count())));
+        }
+
+        if (summary.duplicateGroupCount() > 0) {
+            out.println();
+            out.println("Duplicate service names in " + summary.duplicateGroupCount()
+                    + " group(s); the newest, or the last, record of each is kept:");
+            for (DuplicateGroup group : summary.duplicateGroups()) {
+                out.printf("  %-20s %s  kept %s%n", group.serviceName(), String.join(", ", group.rows()), group.kept());
+            }
+            int unlisted = summary.duplicateGroupCount() - summary.duplicateGroups().size();
+            if (unlisted > 0) out.println("  ... and " + unlisted + " more group(s)");
+        }
+
+        UpsertReport outcome = summary.outcome();
+        if (outcome != null && outcome.conflicting() > 0) {
+            out.println();
+            out.println((summary.dryRun() ? "Would keep" : "Kept") + " the vault's record for " + outcome.conflicting()
+                    + " differing credential(s): " + rows(outcome.conflicts(), outcome.conflicting()));
+        }
+
+        out.println();
+        out.printf("Read %d record(s) in %.1f ms (%.0f rec/s).%n",
+                summary.records(), summary.nanos() / 1_000_000.0, summary.recordsPerSecond());
+        if (outcome != null) {
+            out.println(summary.dryRun() ? "Dry run, nothing was changed. Would have: " + outcome : outcome.toString());
+        }
+        out.flush();
+    }
+
+    public static void writeJson(IngestionSummary summary, Writer writer) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(writer)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);  // the caller owns the writer
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeBooleanField("dry_run", summary.dryRun());
+            json.writeNumberField("records", summary.records());
+            json.writeNumberField("nanos", summary.nanos());
+            json.writeNumberField("records_per_second", Math.round(summary.recordsPerSecond()));
+
+            json.writeArrayFieldStart("files");
+            for (FileSummary file : summary.files()) {
+                json.writeStartObject();
+                json.writeStringField("path", file.path());
+                json.writeStringField("format", file.format());
+                json.writeNumberField("records", file.records());
+                json.writeNumberField("rejected", file.rejected());
+                json.writeNumberField("bytes", file.bytes());
+                json.writeNumberField("nanos", file.nanos());
+                json.writeNumberField("records_per_second", Math.round(file.recordsPerSecond()));
+                json.writeStringField("error", file.error());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeObjectFieldStart("errors");
+            for (Map.Entry<RecordError, ErrorGroup> error : summary.errors().entrySet()) {
+                json.writeObjectFieldStart(error.getKey().name().toLowerCase());
+                json.writeNumberField("count", error.getValue().count());
+                writeStrings(json, "rows", error.getValue().rows());
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+
+            json.writeNumberField("duplicate_group_count", summary.duplicateGroupCount());
+            json.writeArrayFieldStart("duplicate_groups");
+            for (DuplicateGroup group : summary.duplicateGroups()) {
+                json.writeStartObject();
+                json.writeStringField("service_name", group.serviceName());
+                writeStrings(json, "rows", group.rows());
+                json.writeStringField("kept", group.kept());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            UpsertReport outcome = summary.outcome();
+            if (outcome != null) {
+                json.writeObjectFieldStart("outcome");
+                json.writeNumberField("inserted", outcome.inserted());
+                json.writeNumberField("updated", outcome.updated());
+                json.writeNumberField("unchanged", outcome.unchanged());
+                json.writeNumberField("conflicting", outcome.conflicting());
+                json.writeNumberField("rejected", outcome.rejected());
+                json.writeNumberField("duplicates", outcome.duplicates());
+                writeStrings(json, "conflicts", outcome.conflicts());
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeStrings(JsonGenerator json, String field, List<String> values) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (String value : values) json.writeString(value);
+        json.writeEndArray();
+    }
+
+    private static String rows(List<String> sample, long count) {
+        String listed = String.join(", ", sample);
+        return count > sample.size() ? listed + ", ... (" + (count - sample.size()) + " more)" : listed;
+    }
+}
@@ -0,0 +1,225 @@
+package com.hameed.hameedpm.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// In-process timers and counters for the hot paths. Disabled until setEnabled(true), so a disabled
+// start() is a field read and stop() returns at once. Latencies go into log-linear buckets
+// (8 per power of two, about 6% error) so percentiles need no stored samples. Allocation is read
+// from the per-thread allocation counter; virtual threads don't have one and are left out of it.
+public class Metrics {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS         = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static volatile boolean enabled;
+    private static volatile com.sun.management.ThreadMXBean threadBean;
+
+    private static final Map<String, Timer>     TIMERS   = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    public record Sample(long startNanos, long startAllocated) {}
+
+    public record TimerSnapshot(String name, long count, long totalNanos, long p50Nanos, long p90Nanos,
+                                long p99Nanos, long maxNanos, long bytes, long allocatedPerOp) {}
+
+    public static void setEnabled(boolean enabled) {
+        if (enabled && threadBean == null) {
+            threadBean = allocationBean();
+        }
+        Metrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // null while metrics are disabled; stop() accepts that
+    public static Sample start() {
+        if (!enabled) return null;
+        return new Sample(System.nanoTime(), allocatedBytes());
+    }
+
+    public static void stop(String name, Sample sample) {
+        stop(name, sample, 0);
+    }
+
+    public static void stop(String name, Sample sample, long bytes) {
+        if (sample == null) return;
+        long elapsed   = System.nanoTime() - sample.startNanos();
+        long allocated = sample.startAllocated() >= 0 ? allocatedBytes() - sample.startAllocated() : -1;
+        TIMERS.computeIfAbsent(name, Timer::new).record(elapsed, bytes, allocated);
+    }
+
+    // times how long the source takes to produce each element, leaving out the downstream work
+    public static <T> Stream<T> timed(String name, Stream<T> source) {
+        if (!enabled) return source;
+        return StreamSupport.stream(new TimedSpliterator<>(name, source.spliterator()), false).onClose(source::close);
+    }
+
+    public static void increment(String name) {
+        if (!enabled) return;
+        COUNTERS.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    public static List<TimerSnapshot> timers() {
+        List<TimerSnapshot> snapshots = new ArrayList<>();
+        TIMERS.values().forEach(timer -> snapshots.add(timer.snapshot()));
+        snapshots.sort(Comparator.comparing(TimerSnapshot::name));
+        return snapshots;
+    }
+
+    public static Map<String, Long> counters() {
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, adder) -> counters.put(name, adder.sum()));
+        return counters;
+    }
+
+    public static void reset() {
+        TIMERS.clear();
+        COUNTERS.clear();
+    }
+
+    // -1 when the current thread has no allocation counter (virtual threads, unsupported VMs)
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = threadBean;
+        if (bean == null || Thread.currentThread().isVirtual()) return -1;
+        return bean.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (UnsupportedOperationException | LinkageError e) {
+            // not available in every runtime (native images); timings still work
+        }
+        return null;
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) Math.max(0, nanos);
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // midpoint of the bucket's range
+    static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) / 2;
+    }
+
+    private static class TimedSpliterator<T> implements Spliterator<T>, Consumer<T> {
+        private final String name;
+        private final Spliterator<T> source;
+        private T current;
+
+        TimedSpliterator(String name, Spliterator<T> source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Sample sample = start();
+            boolean advanced = source.tryAdvance(this);
+            if (!advanced) return false;
+            stop(name, sample);
+            T element = current;
+            current = null;
+            action.accept(element);
+            return true;
+        }
+
+        @Override
+        public void accept(T element) {
+            current = element;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & ~(SIZED | SUBSIZED);
+        }
+    }
+
+    private static class Timer {
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos     = new LongAdder();
+        private final AtomicLong maxNanos      = new AtomicLong();
+        private final LongAdder bytes          = new LongAdder();
+        private final LongAdder allocated      = new LongAdder();
+        private final LongAdder allocatedCount = new LongAdder();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long writtenBytes, long allocatedBytes) {
+            buckets.incrementAndGet(bucketOf(nanos));
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            bytes.add(writtenBytes);
+            if (allocatedBytes >= 0) {
+                allocated.add(allocatedBytes);
+                allocatedCount.increment();
+            }
+        }
+
+        TimerSnapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long max = maxNanos.get();
+            long allocations = allocatedCount.sum();
+            return new TimerSnapshot(name, total, totalNanos.sum(),
+                    percentile(counts, total, 0.50, max), percentile(counts, total, 0.90, max),
+                    percentile(counts, total, 0.99, max), max, bytes.sum(),
+                    allocations > 0 ? allocated.sum() / allocations : -1);
+        }
+
+        private static long percentile(long[] counts, long total, double quantile, long max) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(valueOf(i), max);
+            }
+            return max;
+        }
+    }
+}
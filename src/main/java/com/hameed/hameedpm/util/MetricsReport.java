@@ -0,0 +1,85 @@
+package com.hameed.hameedpm.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// Renders Metrics as the `stats` table or as JSON. The JSON is written with the streaming generator,
+// so it needs no reflection in the native image.
+public class MetricsReport {
+
+    private static final String ROW = "%-20s %8s %10s %10s %10s %10s %12s %12s%n";
+
+    public static void print(PrintWriter out) {
+        List<Metrics.TimerSnapshot> timers = Metrics.timers();
+        Map<String, Long> counters = Metrics.counters();
+        if (timers.isEmpty() && counters.isEmpty()) {
+            out.println(Metrics.isEnabled()
+                    ? "Nothing recorded yet."
+                    : "Metrics are disabled (hameed-pm.metrics.enabled).");
+            return;
+        }
+
+        out.printf(ROW, "operation", "count", "p50", "p90", "p99", "max", "bytes", "alloc/op");
+        for (Metrics.TimerSnapshot timer : timers) {
+            out.printf(ROW, timer.name(), timer.count(),
+                    duration(timer.p50Nanos()), duration(timer.p90Nanos()),
+                    duration(timer.p99Nanos()), duration(timer.maxNanos()),
+                    timer.bytes() > 0 ? size(timer.bytes()) : "-",
+                    timer.allocatedPerOp() >= 0 ? size(timer.allocatedPerOp()) : "-");
+        }
+        if (!counters.isEmpty()) {
+            out.println();
+            counters.forEach((name, value) -> out.printf("%-20s %8d%n", name, value));
+        }
+    }
+
+    public static void writeJson(Writer writer) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(writer)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);  // the caller owns the writer
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeStringField("generated_at", Instant.now().toString());
+            json.writeArrayFieldStart("timers");
+            for (Metrics.TimerSnapshot timer : Metrics.timers()) {
+                json.writeStartObject();
+                json.writeStringField("name", timer.name());
+                json.writeNumberField("count", timer.count());
+                json.writeNumberField("total_nanos", timer.totalNanos());
+                json.writeNumberField("p50_nanos", timer.p50Nanos());
+                json.writeNumberField("p90_nanos", timer.p90Nanos());
+                json.writeNumberField("p99_nanos", timer.p99Nanos());
+                json.writeNumberField("max_nanos", timer.maxNanos());
+                json.writeNumberField("bytes", timer.bytes());
+                json.writeNumberField("allocated_bytes_per_op", timer.allocatedPerOp());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("counters");
+            for (Map.Entry<String, Long> counter : Metrics.counters().entrySet()) {
+                json.writeNumberField(counter.getKey(), counter.getValue());
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 10_000) return nanos + " ns";
+        if (nanos < 10_000_000) return String.format("%.1f us", nanos / 1_000.0);
+        if (nanos < 10_000_000_000L) return String.format("%.1f ms", nanos / 1_000_000.0);
+        return String.format("%.1f s", nanos / 1_000_000_000.0);
+    }
+
+    private static String size(long bytes) {
+        if (bytes < 10 * 1024) return bytes + " B";
+        if (bytes < 10L * 1024 * 1024) return String.format("%.1f KiB", bytes / 1024.0);
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,55 @@
+package com.hameed.hameedpm.util;
+
+import java.util.Arrays;
+
+// Random passwords that meet the policy of PasswordUtil.validPassword. Random bytes are drawn from
+// CryptoUtil's SecureRandom a block at a time instead of once per character, and mapped onto the
+// alphabet by rejection so every character is equally likely. A password missing a character class
+// is drawn again. Not thread-safe; use one generator per batch.
+public class PasswordGenerator {
+
+    public static final int MIN_LENGTH = 12;
+    public static final int DEFAULT_LENGTH = 20;
+
+    // the policy's special characters, less quotes, comma, semicolon and backslash so generated
+    // passwords survive CSV files and shell scripts unquoted
+    private static final char[] ALPHABET = ("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+            + "!@#$%^&*()_+-=[]{}|:.<>/?").toCharArray();
+    // bytes at or above this are rejected, so each character comes from an equal share of byte values
+    private static final int ACCEPT_BELOW = 256 - 256 % ALPHABET.length;
+    private static final int BLOCK_SIZE = 4096;
+
+    private final int length;
+    private byte[] block = new byte[0];
+    private int next;
+
+    public PasswordGenerator(int length) {
+        if (length < MIN_LENGTH) {
+            throw new IllegalArgumentException("Generated passwords must be at least " + MIN_LENGTH + " characters long");
+        }
+        this.length = length;
+    }
+
+    public char[] next() {
+        char[] password = new char[length];
+        do {
+            for (int i = 0; i < length; i++) {
+                password[i] = ALPHABET[nextIndex()];
+            }
+        } while (!PasswordUtil.validPassword(password));
+        return password;
+    }
+
+    private int nextIndex() {
+        while (true) {
+            if (next == block.length) {
+                Arrays.fill(block, (byte) 0);
+                block = CryptoUtil.generateRandomBytes(BLOCK_SIZE);
+                next = 0;
+            }
+            int value = block[next] & 0xFF;
+            block[next++] = 0;
+            if (value < ACCEPT_BELOW) return value % ALPHABET.length;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.hameed.hameedpm.util;
+
+import com.hameed.hameedpm.enums.PasswordIssue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+// Estimates how hard a password is to guess. Every character is worth log2 of the character set the
+// password draws from, except the ones an attacker gets for free: the rest of a run (aaa), of a
+// sequence (abc, 321, qwerty), of a year, of a common password or of the account's own names, which
+// count one bit each. A password that fails the policy new passwords must meet is capped.
+public class PasswordStrength {
+
+    public record Result(int score, double entropyBits, Set<PasswordIssue> issues) {}
+
+    // effective bits that score 100
+    private static final double FULL_SCORE_BITS = 80;
+    // below this many bits a password is reported as low entropy
+    private static final double LOW_ENTROPY_BITS = 50;
+    private static final int BELOW_POLICY_CAP = 60;
+    private static final double PREDICTABLE_CHAR_BITS = 1;
+
+    // shortest run, sequence or name fragment that counts as a pattern
+    private static final int MIN_PATTERN_LENGTH = 3;
+    private static final int MIN_NAME_LENGTH = 4;
+
+    private static final String[] KEYBOARD_ROWS = {"`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./"};
+
+    // matched after undoing common substitutions (p@ssw0rd), so they are letters only
+    private static final String[] COMMON_WORDS = {
+            "password", "passwort", "letmein", "welcome", "admin", "login", "master", "secret", "dragon",
+            "monkey", "shadow", "sunshine", "princess", "football", "baseball", "soccer", "hockey", "iloveyou",
+            "trustno", "superman", "batman", "starwars", "whatever", "freedom", "hello", "charlie", "michael",
+            "jordan", "summer", "winter", "spring", "autumn", "changeme", "default", "computer", "internet",
+            "access", "flower", "cookie", "pokemon", "killer", "hunter", "ninja", "mustang", "azerty"
+    };
+
+    private PasswordStrength() {}
+
+    // names are the service name, username and the like; a password built from them is predictable
+    public static Result evaluate(String password, String... names) {
+        if (password == null || password.isEmpty()) {
+            return new Result(0, 0, EnumSet.of(PasswordIssue.EMPTY));
+        }
+        Set<PasswordIssue> issues = EnumSet.noneOf(PasswordIssue.class);
+        char[] chars = password.toCharArray();
+        try {
+            if (!PasswordUtil.validPassword(chars)) issues.add(PasswordIssue.BELOW_POLICY);
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+
+        String lower = password.toLowerCase(Locale.ROOT);
+        boolean[] predictable = new boolean[lower.length()];
+        if (markRepeats(lower, predictable)) issues.add(PasswordIssue.REPEATED_CHARACTERS);
+        if (markSequences(lower, predictable)) issues.add(PasswordIssue.SEQUENCE);
+        if (markYears(lower, predictable)) issues.add(PasswordIssue.CONTAINS_YEAR);
+        if (markWords(unleet(lower), COMMON_WORDS, MIN_NAME_LENGTH, predictable)) issues.add(PasswordIssue.COMMON_WORD);
+        for (String name : names) {
+            if (name != null && markWords(lower, name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"), MIN_NAME_LENGTH, predictable)) {
+                issues.add(PasswordIssue.CONTAINS_NAME);
+            }
+        }
+
+        double bitsPerChar = Math.log(pool(password)) / Math.log(2);
+        double bits = 0;
+        for (boolean free : predictable) {
+            bits += free ? PREDICTABLE_CHAR_BITS : bitsPerChar;
+        }
+        if (bits < LOW_ENTROPY_BITS) issues.add(PasswordIssue.LOW_ENTROPY);
+
+        int score = (int) Math.min(100, Math.round(bits * 100 / FULL_SCORE_BITS));
+        if (issues.contains(PasswordIssue.BELOW_POLICY)) score = Math.min(score, BELOW_POLICY_CAP);
+        return new Result(score, bits, issues);
+    }
+
+    // size of the alphabet the password draws from
+    private static int pool(String password) {
+        boolean lower = false, upper = false, digit = false, symbol = false, other = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z')      lower = true;
+            else if (c >= 'A' && c <= 'Z') upper = true;
+            else if (c >= '0' && c <= '9') digit = true;
+            else if (c >= ' ' && c <= '~') symbol = true;
+            else                           other = true;
+        }
+        return (lower ? 26 : 0) + (upper ? 26 : 0) + (digit ? 10 : 0) + (symbol ? 33 : 0) + (other ? 100 : 0);
+    }
+
+    // aaa, 1111: everything after the first character of the run
+    private static boolean markRepeats(String s, boolean[] predictable) {
+        boolean found = false;
+        int start = 0;
+        for (int i = 1; i <= s.length(); i++) {
+            if (i < s.length() && s.charAt(i) == s.charAt(start)) continue;
+            if (i - start >= MIN_PATTERN_LENGTH) {
+                Arrays.fill(predictable, start + 1, i, true);
+                found = true;
+            }
+            start = i;
+        }
+        return found;
+    }
+
+    // abc, 987, qwerty, asdf: runs that step by one, up or down, through the alphabet, the digits or a
+    // keyboard row
+    private static boolean markSequences(String s, boolean[] predictable) {
+        boolean found = false;
+        int start = 0;
+        int direction = 0;
+        for (int i = 1; i <= s.length(); i++) {
+            int step = i < s.length() ? step(s.charAt(i - 1), s.charAt(i)) : 0;
+            if (step != 0 && (direction == 0 || step == direction)) {
+                direction = step;
+                continue;
+            }
+            if (i - start >= MIN_PATTERN_LENGTH) {
+                Arrays.fill(predictable, start + 1, i, true);
+                found = true;
+            }
+            // the last character of a broken run can start the next one
+            start = step != 0 ? i - 1 : i;
+            direction = step;
+        }
+        return found;
+    }
+
+    private static int step(char from, char to) {
+        if (Character.isLetterOrDigit(from) && Character.isLetterOrDigit(to)
+                && Character.isLetter(from) == Character.isLetter(to) && Math.abs(to - from) == 1) {
+            return to - from;
+        }
+        for (String row : KEYBOARD_ROWS) {
+            int at = row.indexOf(from);
+            if (at < 0) continue;
+            if (at + 1 < row.length() && row.charAt(at + 1) == to) return 2;
+            if (at > 0 && row.charAt(at - 1) == to) return -2;
+        }
+        return 0;
+    }
+
+    // 1900 to 2099: the last three digits
+    private static boolean markYears(String s, boolean[] predictable) {
+        boolean found = false;
+        for (int i = 0; i + 4 <= s.length(); i++) {
+            char c0 = s.charAt(i), c1 = s.charAt(i + 1);
+            if (((c0 == '1' && c1 == '9') || (c0 == '2' && c1 == '0'))
+                    && Character.isDigit(s.charAt(i + 2)) && Character.isDigit(s.charAt(i + 3))
+                    && (i == 0 || !Character.isDigit(s.charAt(i - 1)))
+                    && (i + 4 == s.length() || !Character.isDigit(s.charAt(i + 4)))) {
+                Arrays.fill(predictable, i + 1, i + 4, true);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // every occurrence of every word at least minLength long, after its first character
+    private static boolean markWords(String s, String[] words, int minLength, boolean[] predictable) {
+        boolean found = false;
+        for (String word : words) {
+            if (word.length() < minLength) continue;
+            for (int at = s.indexOf(word); at >= 0; at = s.indexOf(word, at + 1)) {
+                Arrays.fill(predictable, at + 1, at + word.length(), true);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // same length as the input, so positions still line up
+    private static String unleet(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = switch (chars[i]) {
+                case '@', '4' -> 'a';
+                case '3' -> 'e';
+                case '1', '!' -> 'i';
+                case '0' -> 'o';
+                case '$', '5' -> 's';
+                case '7' -> 't';
+                default -> chars[i];
+            };
+        }
+        return new String(chars);
+    }
+}
@@ -3,6 +3,12 @@ package com.hameed.hameedpm.util;
 import org.jline.reader.LineReader;
 import org.jline.terminal.Terminal;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 public class PasswordUtil {
 
     public static char[] promptPassword(String prompt, LineReader lineReader) {
@@ -10,6 +16,38 @@ public class PasswordUtil {
         return input != null ? input.toCharArray() : new char[0];
     }
 
+    // first line of an inherited file descriptor, e.g. `hameed-pm batch script.txt --password-fd 3 3<pass.txt`
+    public static char[] readPasswordFromFd(int fd) throws IOException {
+        Path path = Path.of("/dev/fd/" + fd);
+        if (!Files.isReadable(path)) {
+            throw new IOException("File descriptor " + fd + " is not open for reading");
+        }
+        try (Reader reader = Files.newBufferedReader(path)) {
+            char[] buffer = new char[64];
+            int length = 0;
+            int c;
+            while ((c = reader.read()) != -1 && c != '\n' && c != '\r') {
+                if (length == buffer.length) {
+                    char[] grown = Arrays.copyOf(buffer, buffer.length * 2);
+                    Arrays.fill(buffer, '\0');
+                    buffer = grown;
+                }
+                buffer[length++] = (char) c;
+            }
+            char[] password = Arrays.copyOf(buffer, length);
+            Arrays.fill(buffer, '\0');
+            return password;
+        }
+    }
+
+    public static char[] readPasswordFromEnv(String variable) {
+        String value = System.getenv(variable);
+        if (value == null) {
+            throw new IllegalArgumentException("Environment variable " + variable + " is not set");
+        }
+        return value.toCharArray();
+    }
+
     public static boolean validPassword(char[] password) {
         if (password.length < 12) return false;
         boolean hasUpper = false, hasLower = false, hasDigit = false, hasSpecial = false;
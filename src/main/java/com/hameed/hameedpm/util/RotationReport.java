@@ -0,0 +1,66 @@
+package com.hameed.hameedpm.util;
+
+import com.hameed.hameedpm.model.RotationSummary;
+import com.hameed.hameedpm.model.RotationSummary.Rotation;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+// Renders a rotation: the rotated credentials on the terminal, and the old and new passwords as CSV
+// for changing them at each service. New passwords are only printed when they were not exported.
+public class RotationReport {
+
+    private static final String ROW = "%-28s %-28s %s%n";
+    private static final String NAME_ROW = "%-28s %s%n";
+
+    public static void print(RotationSummary summary, PrintWriter out) {
+        boolean showPasswords = !summary.dryRun() && summary.export() == null;
+        if (showPasswords) {
+            out.printf(ROW, "service", "username", "new password");
+            summary.rotations().forEach(rotation -> out.printf(ROW, rotation.serviceName(), rotation.username(), rotation.newPassword()));
+        } else {
+            out.printf(NAME_ROW, "service", "username");
+            summary.rotations().forEach(rotation -> out.printf(NAME_ROW, rotation.serviceName(), rotation.username()));
+        }
+        out.println();
+        if (summary.dryRun()) {
+            out.println("Dry run, nothing was changed. Would rotate " + summary.rotations().size() + " credential(s).");
+        } else {
+            out.printf("Rotated %d credential(s) with one save in %.1f ms.%n",
+                    summary.rotations().size(), summary.nanos() / 1_000_000.0);
+            if (summary.export() != null) {
+                out.println("Old and new passwords were written to " + summary.export() + "; delete it once they are changed.");
+            }
+        }
+        out.flush();
+    }
+
+    // the file is created owner-only and must not exist yet; if writing fails, the file this call
+    // created is removed, but an existing file is never touched
+    public static void writeCsv(List<Rotation> rotations, Path path) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(path,
+                Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), VaultFileUtil.ownerOnly());
+        try (Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+             CSVPrinter csv = new CSVPrinter(writer, CSVFormat.DEFAULT.builder()
+                     .setHeader("service_name", "username", "old_password", "new_password").build())) {
+            for (Rotation rotation : rotations) {
+                csv.printRecord(rotation.serviceName(), rotation.username(), rotation.oldPassword(), rotation.newPassword());
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+}
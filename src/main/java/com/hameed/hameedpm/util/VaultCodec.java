@@ -0,0 +1,294 @@
+package com.hameed.hameedpm.util;
+
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.Vault;
+import com.hameed.hameedpm.model.VaultFile;
+import com.hameed.hameedpm.model.VaultSegment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary encoding of the vault container and of the encrypted payloads.
+// Everything is length-prefixed; a length of -1 marks null. Payloads start with a marker byte that
+// can never begin a JSON document, so readers can still fall back to the older JSON encoding.
+public class VaultCodec {
+
+    private static final int  CONTAINER_MAGIC   = 0x48504D56; // "HPMV"
+    private static final short CONTAINER_VERSION = 3;  // 2 added the calibrated derive time
+    // from 3 the manifest HMAC covers the derive time; older derive times are unsigned and dropped
+    public static final short SIGNED_DERIVE_TIME_VERSION = 3;
+
+    private static final byte HEADER_MARKER      = (byte) 0xB1;
+    private static final byte CREDENTIALS_MARKER = (byte) 0xB2;
+    private static final byte CREDENTIAL_MARKER  = (byte) 0xB3;
+    // records of the sealed layout start with a kind byte; the secret part may be sealed
+    private static final byte SEALED_CREDENTIALS_MARKER = (byte) 0xB4;
+    private static final byte SEALED_CREDENTIAL_MARKER  = (byte) 0xB5;
+
+    private static final byte RECORD_PLAIN  = 0;
+    private static final byte RECORD_SEALED = 1;
+    private static final byte RECORD_SEALED_DATED = 2;  // sealed, plus the last-modified time
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    public static boolean isBinaryContainer(byte[] bytes) {
+        return bytes.length >= 4
+                && ((bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF))
+                == CONTAINER_MAGIC;
+    }
+
+    public static boolean isBinaryPayload(byte[] bytes) {
+        return bytes.length > 0 && (bytes[0] == HEADER_MARKER
+                || bytes[0] == CREDENTIALS_MARKER
+                || bytes[0] == CREDENTIAL_MARKER
+                || bytes[0] == SEALED_CREDENTIALS_MARKER
+                || bytes[0] == SEALED_CREDENTIAL_MARKER);
+    }
+
+    // fixed header: magic, container version, format version, iterations, derive time, generation, segment count;
+    // then salt, iv, hash, ciphertext and the segment table
+    public static byte[] encodeVaultFile(VaultFile vaultFile) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(
+                64 + length(vaultFile.getCiphertext()) + vaultFile.getSegments().size() * 64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(CONTAINER_MAGIC);
+        out.writeShort(CONTAINER_VERSION);
+        out.writeShort(vaultFile.getFormatVersion());
+        out.writeInt(vaultFile.getIterations());
+        out.writeLong(vaultFile.getDeriveMillis());
+        out.writeLong(vaultFile.getGeneration());
+        out.writeInt(vaultFile.getSegmentCount());
+        writeBytes(out, vaultFile.getSalt());
+        writeBytes(out, vaultFile.getIv());
+        writeBytes(out, vaultFile.getHash());
+        writeBytes(out, vaultFile.getCiphertext());
+        out.writeInt(vaultFile.getSegments().size());
+        for (VaultSegment segment : vaultFile.getSegments()) {
+            out.writeInt(segment.getIndex());
+            writeBytes(out, segment.getIv());
+            writeBytes(out, segment.getDigest());
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static VaultFile decodeVaultFile(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != CONTAINER_MAGIC) {
+            throw new IOException("Not a vault container");
+        }
+        short containerVersion = in.readShort();
+        if (containerVersion < 1 || containerVersion > CONTAINER_VERSION) {
+            throw new IOException("Unsupported vault container version: " + containerVersion);
+        }
+
+        VaultFile vaultFile = new VaultFile();
+        vaultFile.setContainerVersion(containerVersion);
+        vaultFile.setFormatVersion(in.readShort());
+        vaultFile.setIterations(in.readInt());
+        if (containerVersion >= 2) {
+            long deriveMillis = in.readLong();
+            vaultFile.setDeriveMillis(containerVersion >= SIGNED_DERIVE_TIME_VERSION ? deriveMillis : 0);
+        }
+        vaultFile.setGeneration(in.readLong());
+        vaultFile.setSegmentCount(in.readInt());
+        vaultFile.setSalt(readBytes(in));
+        vaultFile.setIv(readBytes(in));
+        vaultFile.setHash(readBytes(in));
+        vaultFile.setCiphertext(readBytes(in));
+
+        int segmentCount = in.readInt();
+        List<VaultSegment> segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(new VaultSegment(in.readInt(), readBytes(in), readBytes(in)));
+        }
+        vaultFile.setSegments(segments);
+        return vaultFile;
+    }
+
+    // vault header: name, signing key and record key, credentials live in the segments
+    public static byte[] encodeHeader(Vault vault) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(HEADER_MARKER);
+        writeString(out, vault.getName());
+        writeBytes(out, vault.getSigningKey());
+        writeBytes(out, vault.getRecordKey());
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static Vault decodeHeader(byte[] bytes) throws IOException {
+        DataInputStream in = open(bytes, HEADER_MARKER);
+        Vault vault = new Vault(readString(in), new ArrayList<>());
+        vault.setSigningKey(readBytes(in));
+        // headers written before records were sealed end after the signing key
+        vault.setRecordKey(in.available() > 0 ? readBytes(in) : null);
+        return vault;
+    }
+
+    public static byte[] encodeCredentials(List<Credential> credentials) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 + credentials.size() * 96);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(SEALED_CREDENTIALS_MARKER);
+        out.writeInt(credentials.size());
+        for (Credential credential : credentials) {
+            writeRecord(out, credential);
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static List<Credential> decodeCredentials(byte[] bytes) throws IOException {
+        boolean sealedLayout = bytes.length > 0 && bytes[0] == SEALED_CREDENTIALS_MARKER;
+        DataInputStream in = open(bytes, sealedLayout ? SEALED_CREDENTIALS_MARKER : CREDENTIALS_MARKER);
+        int count = in.readInt();
+        List<Credential> credentials = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            credentials.add(sealedLayout ? readRecord(in) : readCredential(in));
+        }
+        return credentials;
+    }
+
+    public static byte[] encodeCredential(Credential credential) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(SEALED_CREDENTIAL_MARKER);
+        writeRecord(out, credential);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static Credential decodeCredential(byte[] bytes) throws IOException {
+        return bytes.length > 0 && bytes[0] == SEALED_CREDENTIAL_MARKER
+                ? readRecord(open(bytes, SEALED_CREDENTIAL_MARKER))
+                : readCredential(open(bytes, CREDENTIAL_MARKER));
+    }
+
+    // the part of a credential that gets sealed: password and additional info
+    public static byte[] encodeSecret(Credential credential) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        writeSecret(out, credential);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static void decodeSecret(byte[] bytes, Credential target) throws IOException {
+        readSecret(new DataInputStream(new ByteArrayInputStream(bytes)), target);
+    }
+
+    // service name and username stay readable so listing and searching never open secrets
+    private static void writeRecord(DataOutputStream out, Credential credential) throws IOException {
+        out.writeByte(credential.isSealed() ? RECORD_SEALED_DATED : RECORD_PLAIN);
+        writeString(out, credential.getServiceName());
+        writeString(out, credential.getUsername());
+        if (credential.isSealed()) {
+            out.writeLong(credential.getModifiedAt() != null ? credential.getModifiedAt().toEpochMilli() : UNKNOWN_TIME);
+            writeBytes(out, credential.getSealedSecret());
+        } else {
+            writeSecret(out, credential);
+        }
+    }
+
+    private static Credential readRecord(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        Credential credential = new Credential();
+        credential.setServiceName(readString(in));
+        credential.setUsername(readString(in));
+        switch (kind) {
+            case RECORD_SEALED_DATED -> {
+                long modifiedAt = in.readLong();
+                credential.setModifiedAt(modifiedAt != UNKNOWN_TIME ? Instant.ofEpochMilli(modifiedAt) : null);
+                credential.setSealedSecret(readBytes(in));
+            }
+            case RECORD_SEALED -> credential.setSealedSecret(readBytes(in));
+            case RECORD_PLAIN  -> readSecret(in, credential);
+            default -> throw new IOException("Unknown credential record type: " + kind);
+        }
+        return credential;
+    }
+
+    private static void writeSecret(DataOutputStream out, Credential credential) throws IOException {
+        writeString(out, credential.getPassword());
+        Map<String, String> additionalInfo = credential.getAdditionalInfo();
+        if (additionalInfo == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(additionalInfo.size());
+        for (Map.Entry<String, String> entry : additionalInfo.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void readSecret(DataInputStream in, Credential target) throws IOException {
+        target.setPassword(readString(in));
+        int infoCount = in.readInt();
+        if (infoCount >= 0) {
+            Map<String, String> additionalInfo = new LinkedHashMap<>();
+            for (int i = 0; i < infoCount; i++) {
+                additionalInfo.put(readString(in), readString(in));
+            }
+            target.setAdditionalInfo(additionalInfo);
+        }
+    }
+
+    // layout written before records were sealed
+    private static Credential readCredential(DataInputStream in) throws IOException {
+        Credential credential = new Credential();
+        credential.setServiceName(readString(in));
+        credential.setUsername(readString(in));
+        readSecret(in, credential);
+        return credential;
+    }
+
+    private static DataInputStream open(byte[] bytes, byte marker) throws IOException {
+        if (bytes.length == 0 || bytes[0] != marker) {
+            throw new IOException("Unexpected vault payload type");
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        if (length > in.available()) {
+            throw new IOException("Truncated vault data");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+}
@@ -1,14 +1,33 @@
 package com.hameed.hameedpm.util;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HexFormat;
+import java.util.Set;
 
 public class VaultFileUtil {
 
     private static final String HOME_PATH = System.getProperty("user.home");
     private static final String MAIN_DIR = ".hameed-pm";
-    private static final String VAULT_EXTENSION = ".json";
+    private static final String VAULT_EXTENSION = ".vault";
+    private static final String LEGACY_VAULT_EXTENSION = ".json";
+    private static final String SEGMENT_DIR_SUFFIX = ".segments";
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String JOURNAL_EXTENSION = ".wal";
+    private static final String NEXT_JOURNAL_EXTENSION = ".wal.next";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String AGENT_DIR = "agent";
+    private static final String AGENT_SOCKET = "agent.sock";
     public static final String DEFAULT_VAULT_NAME = "safe-vault";
 
     public static Path getVaultPath(String vaultName) throws SecurityException {
@@ -23,22 +42,55 @@ public class VaultFileUtil {
         return target;
     }
 
+    // pretty-printed JSON vault written before the binary container, still readable
+    public static Path getLegacyVaultPath(String vaultName) throws SecurityException {
+        return getVaultPath(vaultName).resolveSibling(vaultName + LEGACY_VAULT_EXTENSION);
+    }
+
+    public static Path getSegmentDir(String vaultName) throws SecurityException {
+        Path vaultPath = getVaultPath(vaultName);
+        return vaultPath.resolveSibling(vaultName + SEGMENT_DIR_SUFFIX);
+    }
+
+    public static Path getJournalPath(String vaultName) throws SecurityException {
+        return getVaultPath(vaultName).resolveSibling(vaultName + JOURNAL_EXTENSION);
+    }
+
+    // journal staged by a checkpoint; it becomes the live journal once the new manifest is saved
+    public static Path getNextJournalPath(String vaultName) throws SecurityException {
+        return getVaultPath(vaultName).resolveSibling(vaultName + NEXT_JOURNAL_EXTENSION);
+    }
+
+    // socket of the unlock agent; one agent per user, serving the vault it unlocked. It lives in its
+    // own owner-only directory so nobody else can reach it, even before its own permissions are set
+    public static Path getAgentSocketPath() {
+        return Paths.get(HOME_PATH, MAIN_DIR, AGENT_DIR, AGENT_SOCKET);
+    }
+
+    // segment files are never overwritten in place: every write gets a fresh name derived
+    // from its IV, so the previous manifest stays valid until the new one is saved
+    public static String segmentFileName(int index, byte[] iv) {
+        return String.format("%04d-%s%s", index, HexFormat.of().formatHex(iv), SEGMENT_EXTENSION);
+    }
+
     public static boolean vaultFileExists(String vaultName) {
 
         try {
-            Path vaultPath = getVaultPath(vaultName);
-            return Files.exists(vaultPath);
+            return Files.exists(getVaultPath(vaultName)) || Files.exists(getLegacyVaultPath(vaultName));
         } catch (SecurityException e) {
             return false;
         }
     }
 
-    public static String loadVaultFile(String vaultName) throws Exception {
+    public static byte[] loadVaultFile(String vaultName) throws Exception {
         Path vaultPath = getVaultPath(vaultName);
-        return Files.readString(vaultPath);
+        if (!Files.exists(vaultPath)) {
+            vaultPath = getLegacyVaultPath(vaultName);
+        }
+        return readFile(vaultPath);
     }
 
-    public static void saveVaultFile(String vaultContent, String vaultName) throws Exception {
+    public static void saveVaultFile(byte[] vaultContent, String vaultName) throws Exception {
         Path vaultPath = getVaultPath(vaultName);
 
         // ensure parent directories exist
@@ -46,7 +98,114 @@ public class VaultFileUtil {
             Files.createDirectories(vaultPath.getParent());
         }
 
-        Files.writeString(vaultPath, vaultContent);
+        writeAtomically(vaultPath, vaultContent);
+        // the binary container supersedes the JSON file once it is written
+        if (Files.deleteIfExists(getLegacyVaultPath(vaultName))) {
+            syncDirectory(vaultPath.getParent());
+        }
+    }
+
+    public static byte[] loadSegment(String vaultName, String fileName) throws Exception {
+        return readFile(getSegmentDir(vaultName).resolve(fileName));
+    }
+
+    // segments get fresh names, so they are written in place; syncSegments makes the names durable
+    public static void saveSegment(String vaultName, String fileName, byte[] content) throws Exception {
+        Path segmentDir = getSegmentDir(vaultName);
+        if (!Files.exists(segmentDir)) {
+            Files.createDirectories(segmentDir);
+        }
+        try (FileChannel channel = FileChannel.open(segmentDir.resolve(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            restrictToOwner(segmentDir.resolve(fileName));
+            write(channel, content);
+            channel.force(true);
+        }
+    }
+
+    public static void syncSegments(String vaultName) throws IOException {
+        syncDirectory(getSegmentDir(vaultName));
+    }
+
+    // write to a sibling temp file, fsync it, rename it over the target and fsync the directory,
+    // so a crash leaves either the old or the new file, never a torn one
+    public static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            restrictToOwner(temp);
+            write(channel, content);
+            channel.force(true);
+        }
+        moveAtomically(temp, target);
+    }
+
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.getParent());
+    }
+
+    public static byte[] readFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Vault file too large: " + path.getFileName());
+            }
+            // read straight into the result; mapping the file would only add a copy out of the mapping
+            byte[] content = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) { }
+            return content;
+        }
+    }
+
+    // makes renames and deletions in the directory durable; not supported on every platform
+    public static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            if (!isWindows()) throw e;
+        }
+    }
+
+    private static void write(FileChannel channel, byte[] content) throws IOException {
+        // the JDK copies heap buffers through its own cached per-thread direct buffer
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static void restrictToOwner(Path path) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+
+    // for creating a file that is owner-only from the start, rather than restricted once it exists
+    public static FileAttribute<?>[] ownerOnly() {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+        }
+        return new FileAttribute<?>[0];
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+    }
+
+    // removes segment files no longer referenced by the saved manifest
+    public static void pruneSegments(String vaultName, Set<String> liveFileNames) throws IOException {
+        Path segmentDir = getSegmentDir(vaultName);
+        if (!Files.isDirectory(segmentDir)) return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(segmentDir, "*" + SEGMENT_EXTENSION)) {
+            for (Path segment : stream) {
+                if (!liveFileNames.contains(segment.getFileName().toString())) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        }
+        syncDirectory(segmentDir);
     }
 
 }
@@ -0,0 +1,160 @@
+package com.hameed.hameedpm.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hameed.hameedpm.model.Credential;
+import com.hameed.hameedpm.model.Vault;
+import com.hameed.hameedpm.model.VaultFile;
+import com.hameed.hameedpm.model.VaultSegment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads the JSON written by earlier versions: the vault file, the decrypted vault, segment payloads
+// and journal entries. Everything new is written by VaultCodec, so only the read side exists.
+// Field names are the snake_case ones databind produced, byte arrays are Base64, and unknown fields
+// are skipped. Parsing straight from the byte[] with one shared factory avoids databind's reflective
+// bean mapping and the intermediate String copies of the payload.
+public class VaultJsonCodec {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public static VaultFile readVaultFile(byte[] json) throws IOException {
+        try (JsonParser parser = open(json)) {
+            VaultFile vaultFile = new VaultFile();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "format_version" -> vaultFile.setFormatVersion(parser.getIntValue());
+                    case "iterations"     -> vaultFile.setIterations(parser.getIntValue());
+                    case "derive_millis"  -> vaultFile.setDeriveMillis(parser.getLongValue());
+                    case "salt"           -> vaultFile.setSalt(readBinary(parser, value));
+                    case "iv"             -> vaultFile.setIv(readBinary(parser, value));
+                    case "ciphertext"     -> vaultFile.setCiphertext(readBinary(parser, value));
+                    case "hash"           -> vaultFile.setHash(readBinary(parser, value));
+                    case "generation"     -> vaultFile.setGeneration(parser.getLongValue());
+                    case "segment_count"  -> vaultFile.setSegmentCount(parser.getIntValue());
+                    case "segments"       -> vaultFile.setSegments(readSegments(parser, value));
+                    default -> parser.skipChildren();
+                }
+            }
+            return vaultFile;
+        }
+    }
+
+    public static Vault readVault(byte[] json) throws IOException {
+        try (JsonParser parser = open(json)) {
+            Vault vault = new Vault();
+            List<Credential> credentials = new ArrayList<>();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name"        -> vault.setName(parser.getValueAsString());
+                    case "signing_key" -> vault.setSigningKey(readBinary(parser, value));
+                    case "record_key"  -> vault.setRecordKey(readBinary(parser, value));
+                    case "credentials" -> credentials = readCredentialArray(parser, value);
+                    default -> parser.skipChildren();
+                }
+            }
+            vault.setCredentials(credentials);
+            return vault;
+        }
+    }
+
+    public static List<Credential> readCredentials(byte[] json) throws IOException {
+        try (JsonParser parser = open(json)) {
+            return readCredentialArray(parser, parser.nextToken());
+        }
+    }
+
+    public static Credential readCredential(byte[] json) throws IOException {
+        try (JsonParser parser = open(json)) {
+            return readCredential(parser, parser.nextToken());
+        }
+    }
+
+    private static List<Credential> readCredentialArray(JsonParser parser, JsonToken token) throws IOException {
+        List<Credential> credentials = new ArrayList<>();
+        if (token == JsonToken.VALUE_NULL) return credentials;
+        expect(token, JsonToken.START_ARRAY);
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            credentials.add(readCredential(parser, element));
+        }
+        return credentials;
+    }
+
+    private static Credential readCredential(JsonParser parser, JsonToken token) throws IOException {
+        expect(token, JsonToken.START_OBJECT);
+        Credential credential = new Credential();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "service_name"    -> credential.setServiceName(parser.getValueAsString());
+                case "username"        -> credential.setUsername(parser.getValueAsString());
+                case "password"        -> credential.setPassword(parser.getValueAsString());
+                case "additional_info" -> credential.setAdditionalInfo(readStringMap(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        return credential;
+    }
+
+    private static Map<String, String> readStringMap(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) return null;
+        expect(token, JsonToken.START_OBJECT);
+        Map<String, String> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            parser.nextToken();
+            map.put(key, parser.getValueAsString());
+        }
+        return map;
+    }
+
+    private static List<VaultSegment> readSegments(JsonParser parser, JsonToken token) throws IOException {
+        List<VaultSegment> segments = new ArrayList<>();
+        if (token == JsonToken.VALUE_NULL) return segments;
+        expect(token, JsonToken.START_ARRAY);
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            expect(element, JsonToken.START_OBJECT);
+            VaultSegment segment = new VaultSegment();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "index"  -> segment.setIndex(parser.getIntValue());
+                    case "iv"     -> segment.setIv(readBinary(parser, value));
+                    case "digest" -> segment.setDigest(readBinary(parser, value));
+                    default -> parser.skipChildren();
+                }
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    private static byte[] readBinary(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getBinaryValue();
+    }
+
+    private static JsonParser open(byte[] json) throws IOException {
+        return FACTORY.createParser(json);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Malformed vault JSON: expected " + expected + " but found " + actual);
+        }
+    }
+}
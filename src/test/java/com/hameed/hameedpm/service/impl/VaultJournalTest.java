@@ -0,0 +1,140 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.util.CryptoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Crash recovery on replay: an entry torn at the end of the journal is dropped (and cut off when
+// repairing), while damage in the middle fails the replay and leaves the file as it was.
+class VaultJournalTest {
+
+    private static final String VAULT_NAME = "journal-test";
+    private static final long GENERATION = 7;
+    private static final int ENTRIES = 5;
+
+    @TempDir
+    Path dir;
+
+    private Path path;
+    private SecretKey key;
+    // offset of each entry's length field, and the end of the file
+    private final List<Integer> offsets = new ArrayList<>();
+
+    @BeforeEach
+    void writeJournal() throws Exception {
+        path = dir.resolve("vault.journal");
+        key = CryptoUtil.keyFromBytes(CryptoUtil.generateRandomBytes(32));
+        List<VaultJournal.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            entries.add(new VaultJournal.Entry(VaultJournal.OP_PUT, ("credential-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        VaultJournal.create(path, key, VAULT_NAME, GENERATION, entries);
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        int offset = 4 + 4 + 8 + 12 + 16;
+        while (offset < data.limit()) {
+            offsets.add(offset);
+            offset += 4 + data.getInt(offset);
+        }
+        offsets.add(offset);
+        assertEquals(ENTRIES + 1, offsets.size());
+    }
+
+    @Test
+    void replaysEveryEntry() throws Exception {
+        VaultJournal.Replay replay = VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true);
+        assertEquals(ENTRIES, replay.entries().size());
+        assertEquals(ENTRIES - 1, replay.lastSequence());
+        assertArrayEquals("credential-4".getBytes(StandardCharsets.UTF_8), replay.entries().get(4).payload());
+    }
+
+    @Test
+    void dropsEntryTornAtTheTail() throws Exception {
+        int lastEntry = offsets.get(ENTRIES - 1);
+        truncate(lastEntry + 30);
+
+        VaultJournal.Replay readOnly = VaultJournal.replay(path, key, VAULT_NAME, GENERATION, false);
+        assertEquals(ENTRIES - 1, readOnly.entries().size());
+        assertEquals(lastEntry + 30, Files.size(path));
+
+        VaultJournal.Replay repaired = VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true);
+        assertEquals(ENTRIES - 1, repaired.entries().size());
+        assertEquals(lastEntry, Files.size(path));
+    }
+
+    @Test
+    void dropsLengthTornAtTheTail() throws Exception {
+        truncate(offsets.get(ENTRIES - 1) + 2);  // half of the last length field
+
+        VaultJournal.Replay repaired = VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true);
+        assertEquals(ENTRIES - 1, repaired.entries().size());
+        assertEquals((long) offsets.get(ENTRIES - 1), Files.size(path));
+    }
+
+    @Test
+    void dropsZerosAtTheTail() throws Exception {
+        byte[] data = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(data, data.length + 7));
+
+        VaultJournal.Replay repaired = VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true);
+        assertEquals(ENTRIES, repaired.entries().size());
+        assertEquals(data.length, Files.size(path));
+    }
+
+    @Test
+    void rejectsOverlongLengthInTheMiddle() throws Exception {
+        byte[] damaged = setLength(1, Integer.MAX_VALUE);
+
+        assertThrows(SecurityException.class, () -> VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true));
+        assertArrayEquals(damaged, Files.readAllBytes(path));
+    }
+
+    @Test
+    void rejectsLengthRunningPastTheEndInTheMiddle() throws Exception {
+        byte[] damaged = setLength(1, offsets.get(ENTRIES) - offsets.get(1));  // just past the end of the file
+
+        assertThrows(SecurityException.class, () -> VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true));
+        assertArrayEquals(damaged, Files.readAllBytes(path));
+    }
+
+    @Test
+    void rejectsImpossibleLength() throws Exception {
+        byte[] damaged = setLength(2, 3);
+
+        assertThrows(SecurityException.class, () -> VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true));
+        assertArrayEquals(damaged, Files.readAllBytes(path));
+    }
+
+    @Test
+    void rejectsImpossibleLengthOnTheLastEntry() throws Exception {
+        setLength(ENTRIES - 1, 0);
+
+        assertThrows(SecurityException.class, () -> VaultJournal.replay(path, key, VAULT_NAME, GENERATION, true));
+    }
+
+    private void truncate(int length) throws Exception {
+        byte[] data = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(data, length));
+    }
+
+    private byte[] setLength(int entry, int length) throws Exception {
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer.wrap(data).putInt(offsets.get(entry), length);
+        Files.write(path, data);
+        return data;
+    }
+}
@@ -0,0 +1,165 @@
+package com.hameed.hameedpm.service.impl;
+
+import com.hameed.hameedpm.model.Credential;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Lookups, search and listing from several threads while one thread keeps adding, updating and
+// deleting through the single writer, as the agent does with concurrent clients. Every read checks
+// what it saw; afterwards the index, the list and a fresh unlock must all agree.
+class VaultServiceConcurrencyTest {
+
+    private static final String VAULT_NAME = "concurrency-test";
+    private static final char[] PASSWORD = "Test-Passw0rd!".toCharArray();
+    private static final int SIZE = 500;
+    private static final int WRITES = 100;
+
+    // VaultFileUtil resolves ~/.hameed-pm once, so user.home is redirected before it is first touched
+    static {
+        try {
+            System.setProperty("user.home", Files.createTempDirectory("hameed-pm-test").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static VaultService vaultService;
+    private static CredentialService credentialService;
+
+    @BeforeAll
+    static void createVault() throws Exception {
+        vaultService = new VaultService();
+        vaultService.createEncryptedVault(VAULT_NAME, PASSWORD.clone());
+        vaultService.mutate(vault -> {
+            for (int i = 0; i < SIZE; i++) vault.addCredential(credential("service-" + i, "Pa55word-" + i));
+        });
+        credentialService = new CredentialService(vaultService);
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        vaultService.close();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.MINUTES)
+    void readsStayConsistentWhileOneThreadWrites() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Map<String, String> written = new ConcurrentHashMap<>();
+        List<Future<?>> tasks = new ArrayList<>();
+
+        try (ExecutorService threads = Executors.newFixedThreadPool(6)) {
+            tasks.add(threads.submit(() -> {
+                try {
+                    for (int n = 0; n < WRITES; n++) {
+                        write(n, written);
+                    }
+                } finally {
+                    writing.set(false);
+                }
+                return null;
+            }));
+            for (int reader = 0; reader < 3; reader++) {
+                int offset = reader * SIZE / 3;
+                tasks.add(threads.submit(() -> {
+                    // the original credentials are never deleted, so every lookup must hit and open cleanly
+                    for (int i = offset; writing.get(); i++) {
+                        String serviceName = "service-" + (i % SIZE);
+                        Optional<Credential> credential = credentialService.getCredentialByServiceName(serviceName);
+                        assertTrue(credential.isPresent(), "Lookup missed an existing credential: " + serviceName);
+                        assertNotNull(credential.get().getPassword(), "Credential did not open: " + serviceName);
+                    }
+                    return null;
+                }));
+            }
+            tasks.add(threads.submit(() -> {
+                for (int i = 0; writing.get(); i++) {
+                    String serviceName = "service-" + (i % SIZE);
+                    List<Credential> matches = credentialService.searchCredentials(serviceName);
+                    assertTrue(matches.stream().anyMatch(match -> match.getServiceName().equals(serviceName)),
+                            "Search lost an existing credential: " + serviceName);
+                }
+                return null;
+            }));
+            tasks.add(threads.submit(() -> {
+                while (writing.get()) {
+                    // one churn credential exists at most, between its add and its delete
+                    List<Credential> credentials = credentialService.listCredentials();
+                    assertTrue(credentials.size() == SIZE || credentials.size() == SIZE + 1,
+                            "List returned " + credentials.size() + " credentials");
+                    assertEquals(credentials.size(), new HashSet<>(names(credentials)).size(), "List has duplicates");
+                }
+                return null;
+            }));
+            for (Future<?> task : tasks) {
+                task.get();  // rethrows the first failed assertion of that thread
+            }
+        }
+
+        List<Credential> credentials = credentialService.listCredentials();
+        assertEquals(SIZE, credentials.size());
+        for (Credential credential : credentials) {
+            assertTrue(credentialService.getCredentialByServiceName(credential.getServiceName()).isPresent(),
+                    "Listed credential is missing from the index: " + credential.getServiceName());
+        }
+        assertPasswords(written);
+
+        vaultService.lockVault();
+        assertTrue(vaultService.unlockVault(VAULT_NAME, PASSWORD.clone()), "Vault does not unlock after the run");
+        List<Credential> reloaded = credentialService.listCredentials();
+        assertEquals(new HashSet<>(names(credentials)), new HashSet<>(names(reloaded)));
+        assertPasswords(written);
+    }
+
+    // adds a churn credential, changes an original one, and deletes the churn credential again
+    private static void write(int n, Map<String, String> written) throws Exception {
+        String churn = "churn-" + n;
+        credentialService.saveCredential(credential(churn, "Churn-" + n));
+        String serviceName = "service-" + (n * 7 % SIZE);
+        Credential changed = credentialService.getCredentialByServiceName(serviceName).orElseThrow();
+        changed.setPassword("Changed-" + n);
+        credentialService.updateCredential(serviceName, changed);
+        written.put(serviceName, changed.getPassword());
+        credentialService.deleteCredential(churn);
+        assertFalse(credentialService.getCredentialByServiceName(churn).isPresent(), "Deleted credential still found: " + churn);
+    }
+
+    private static void assertPasswords(Map<String, String> written) {
+        written.forEach((serviceName, password) -> assertEquals(password,
+                credentialService.getCredentialByServiceName(serviceName).orElseThrow().getPassword(), serviceName));
+    }
+
+    private static Set<String> names(List<Credential> credentials) {
+        Set<String> names = new HashSet<>();
+        credentials.forEach(credential -> names.add(credential.getServiceName()));
+        return names;
+    }
+
+    private static Credential credential(String serviceName, String password) {
+        return new Credential(serviceName, "user@example.com", password, new LinkedHashMap<>(Map.of("url", "https://example.com")));
+    }
+}